@@ -0,0 +1,86 @@
+package com.sq3rrr.welcomer.bench;
+
+import com.sq3rrr.welcomer.detect.JoinFormat;
+import com.sq3rrr.welcomer.greet.GreetingTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Shared benchmark inputs: join formats, player names, message templates and busy chat streams.
+ * Everything is seeded so runs are comparable.
+ */
+final class ChatWorkload {
+
+    static final String[] FILLER = {
+            "Steve was slain by Zombie",
+            "Alex fell from a high place",
+            "Notch has made the advancement [Stone Age]",
+            "Server restarting in 5 minutes",
+            "[Broadcast] Vote for us to get rewards!",
+            "xX_Sniper_Xx left the game",
+            "You whisper to Steve: hi",
+            "Herobrine tried to swim in lava to escape Skeleton"
+    };
+
+    private ChatWorkload() {
+    }
+
+    /**
+     * The vanilla format plus a spread of server-style variants.
+     */
+    static List<String> formatTemplates(int count) {
+        List<String> out = new ArrayList<>(count);
+        out.add("{player} joined the game");
+        for (int i = 1; i < count; i++) {
+            switch (i % 4) {
+                case 0 -> out.add("{player} joined the game [" + i + "]");
+                case 1 -> out.add("[+" + i + "] {player}");
+                case 2 -> out.add("» {player} connected to hub-" + i);
+                default -> out.add("Welcome back {player} (server " + i + ")!");
+            }
+        }
+        return out;
+    }
+
+    static List<JoinFormat> formats(int count) {
+        List<JoinFormat> out = new ArrayList<>(count);
+        for (String t : formatTemplates(count)) out.add(JoinFormat.parse(t));
+        return out;
+    }
+
+    static String[] names(int count, Random rnd) {
+        String[] out = new String[count];
+        for (int i = 0; i < count; i++) out[i] = (rnd.nextBoolean() ? "Player" : "xX_Gamer") + i + (rnd.nextBoolean() ? "_" : "");
+        return out;
+    }
+
+    static List<GreetingTemplate> welcomeMessages(int count) {
+        List<String> out = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            out.add(i % 3 == 0 ? "Welcome %s! (#" + i + ")" : i % 3 == 1 ? "Hey {player}, you're join #{joinsToday} today! " + i : "o/ " + i);
+        }
+        return GreetingTemplate.compileAll(out);
+    }
+
+    /**
+     * Busy-chat mix: ~5% scattered joins, plus a restart wave of {@code stormSize}
+     * back-to-back joins every 1024 lines. The rest are ordinary GAME lines.
+     * Length is rounded up to a power of two so callers can wrap with a mask.
+     */
+    static String[] chatLines(int count, List<String> templates, String[] players, int stormSize, Random rnd) {
+        int size = Integer.highestOneBit(Math.max(2, count - 1)) << 1;
+        String[] out = new String[size];
+        for (int i = 0; i < size; i++) {
+            boolean storm = (i & 1023) < stormSize;
+            if (storm || rnd.nextInt(100) < 5) {
+                String t = templates.get(rnd.nextInt(templates.size()));
+                out[i] = t.replace(JoinFormat.PLAYER, players[rnd.nextInt(players.length)]);
+            } else {
+                out[i] = FILLER[rnd.nextInt(FILLER.length)];
+            }
+        }
+        return out;
+    }
+}
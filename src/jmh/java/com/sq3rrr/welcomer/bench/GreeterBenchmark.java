@@ -0,0 +1,89 @@
+package com.sq3rrr.welcomer.bench;
+
+import com.sq3rrr.welcomer.config.ConfigSnapshot;
+import com.sq3rrr.welcomer.detect.JoinDetector;
+import com.sq3rrr.welcomer.greet.Greeter;
+import com.sq3rrr.welcomer.ignore.IgnoreRules;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The Minecraft-free part of the GAME listener and greetPlayer, end to end:
+ * join detection, ignore lookup, cooldown checks, queueing and outbox drain.
+ *
+ * Virtual time advances 50ms (one client tick) per chat line, so cooldowns expire
+ * and the outbox sends the way they would in game. Run with the gc profiler
+ * (configured in build.gradle) to get allocation per op.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GreeterBenchmark {
+
+    private static final long TICK_MS = 50L;
+
+    @Param({"DEFAULT", "CONSTANTIAM", "HYPERSAFE"})
+    public String mode;
+
+    @Param({"0", "10000"})
+    public int ignoredCount;
+
+    @Param({"40"})
+    public int stormSize;
+
+    private Greeter greeter;
+    private String[] lines;
+    private int cursor;
+    private long now;
+
+    @Setup
+    public void setup() {
+        Random rnd = new Random(42);
+        List<String> templates = ChatWorkload.formatTemplates(8);
+        String[] players = ChatWorkload.names(5000, rnd);
+
+        greeter = new Greeter(ConfigSnapshot.of(new JoinDetector(ChatWorkload.formats(8))), 0L);
+        greeter.setEnabled(true);
+        greeter.setMode(com.sq3rrr.welcomer.greet.Mode.valueOf(mode));
+        greeter.setMessages(ChatWorkload.welcomeMessages(200));
+        greeter.setSelfName(players[0]);
+
+        // Large ignore list; every 10th ignored name also shows up in chat
+        Set<String> ignored = new HashSet<>();
+        for (int i = 0; i < ignoredCount; i++) {
+            ignored.add(i % 10 == 0 && i / 10 < players.length ? players[i / 10] : "alt_" + i);
+        }
+        greeter.setIgnore(IgnoreRules.of(ignored));
+
+        lines = ChatWorkload.chatLines(16_384, templates, players, stormSize, rnd);
+        now = 0L;
+    }
+
+    @Benchmark
+    public Greeter.Decision decide() {
+        now += TICK_MS;
+        return greeter.onGameMessage(nextLine(), now);
+    }
+
+    @Benchmark
+    public void decideAndDrain(Blackhole bh) {
+        now += TICK_MS;
+        bh.consume(greeter.onGameMessage(nextLine(), now));
+        greeter.tick(now, bh::consume);
+    }
+
+    private String nextLine() {
+        String l = lines[cursor];
+        cursor = (cursor + 1) & (lines.length - 1);
+        return l;
+    }
+}
@@ -0,0 +1,114 @@
+package com.sq3rrr.welcomer.bench;
+
+import com.sq3rrr.welcomer.config.ConfigSnapshot;
+import com.sq3rrr.welcomer.detect.JoinDetector;
+import com.sq3rrr.welcomer.greet.ChatOutbox;
+import com.sq3rrr.welcomer.greet.CooldownTable;
+import com.sq3rrr.welcomer.greet.Greeter;
+import com.sq3rrr.welcomer.greet.TokenBucket;
+import com.sq3rrr.welcomer.ignore.IgnoreRules;
+import com.sq3rrr.welcomer.presence.NameTable;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Individual steps of the greeting decision, so a regression can be pinned to one of them:
+ * ignore lookup (compiled rules vs. the old exact HashSet), per-player cooldown check, message queue rotation + formatting,
+ * and merged-greeting formatting in the outbox.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GreetingPartsBenchmark {
+
+    @Param({"100", "10000"})
+    public int ignoredCount;
+
+    @Param({"200", "20000"})
+    public int messageCount;
+
+    private String[] players;
+    private Set<String> ignored;
+    private IgnoreRules ignoreRules;
+    private NameTable names;
+    private CooldownTable cooldowns;
+    private Greeter greeter;
+    private ChatOutbox groupOutbox;
+    private int cursor;
+    private long now;
+
+    @Setup
+    public void setup() {
+        Random rnd = new Random(42);
+        players = ChatWorkload.names(4096, rnd);
+
+        ignored = new HashSet<>();
+        for (int i = 0; i < ignoredCount; i++) ignored.add(i % 4 == 0 && i < players.length ? players[i] : "alt_" + i);
+
+        // Same names plus one wildcard rule per 100 names, so every matcher kind is populated
+        List<String> rules = new ArrayList<>(ignored);
+        for (int i = 0; i < ignoredCount / 100; i++) {
+            rules.add(i % 2 == 0 ? "Bot" + i + "_*" : "*_alt" + i);
+        }
+        rules.add("regex:^[a-z]{2}\\d{6}$");
+        ignoreRules = IgnoreRules.of(rules);
+
+        names = new NameTable();
+        cooldowns = new CooldownTable(5 * 60 * 1000L);
+
+        greeter = new Greeter(ConfigSnapshot.of(new JoinDetector(ChatWorkload.formats(1))), 0L);
+        greeter.setMessages(ChatWorkload.welcomeMessages(messageCount));
+
+        groupOutbox = new ChatOutbox(new TokenBucket(1, 1, 0L), 0L, Long.MAX_VALUE, p -> "Hi " + p, "Welcome %s!");
+        now = 0L;
+    }
+
+    @Benchmark
+    public boolean ignoreLookup() {
+        return ignoreRules.matches(nextPlayer());
+    }
+
+    @Benchmark
+    public boolean ignoreLookupExactSet() {
+        return ignored.contains(nextPlayer());
+    }
+
+    @Benchmark
+    public boolean cooldownCheck() {
+        now += 50L;
+        // Name -> id lookup included, as on a real join
+        int p = names.intern(nextPlayer());
+        boolean cooling = cooldowns.isCooling(p, now, 5 * 60 * 1000L);
+        if (!cooling) cooldowns.record(p, now);
+        return cooling;
+    }
+
+    @Benchmark
+    public String rotateAndFormat() {
+        return greeter.renderGreeting(nextPlayer());
+    }
+
+    @Benchmark
+    public void mergedGreeting(Blackhole bh) {
+        now += 1L;
+        for (int i = 0; i < 12; i++) groupOutbox.offerGreeting(nextPlayer(), now);
+        groupOutbox.drain(now, bh::consume);
+        groupOutbox.clear();
+    }
+
+    private String nextPlayer() {
+        String p = players[cursor];
+        cursor = (cursor + 1) & (players.length - 1);
+        return p;
+    }
+}
@@ -0,0 +1,80 @@
+package com.sq3rrr.welcomer.bench;
+
+import com.sq3rrr.welcomer.detect.JoinDetector;
+import com.sq3rrr.welcomer.detect.JoinFormat;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Per-line cost of join detection as the number of configured formats grows.
+ *
+ * detector  - JoinDetector (indexed, one pass)
+ * regexScan - one backtracking regex per format, the way a naive multi-pattern setup would do it
+ *
+ * Run: ./gradlew jmh
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JoinDetectorBenchmark {
+
+    @Param({"1", "8", "64", "256"})
+    public int formatCount;
+
+    private JoinDetector detector;
+    private Pattern[] regexes;
+    private String[] lines;
+    private int cursor;
+
+    @Setup
+    public void setup() {
+        List<String> templates = ChatWorkload.formatTemplates(formatCount);
+
+        List<JoinFormat> formats = new ArrayList<>();
+        regexes = new Pattern[templates.size()];
+        for (int i = 0; i < templates.size(); i++) {
+            String t = templates.get(i);
+            formats.add(JoinFormat.parse(t));
+            int at = t.indexOf(JoinFormat.PLAYER);
+            regexes[i] = Pattern.compile("^" + Pattern.quote(t.substring(0, at)) + "(.*?)"
+                    + Pattern.quote(t.substring(at + JoinFormat.PLAYER.length())) + "$");
+        }
+        detector = new JoinDetector(formats);
+        Random rnd = new Random(42);
+        lines = ChatWorkload.chatLines(4096, templates, ChatWorkload.names(2000, rnd), 0, rnd);
+    }
+
+    @Benchmark
+    public void detector(Blackhole bh) {
+        bh.consume(detector.match(nextLine()));
+    }
+
+    @Benchmark
+    public void regexScan(Blackhole bh) {
+        String line = nextLine();
+        for (Pattern p : regexes) {
+            Matcher m = p.matcher(line);
+            if (m.matches()) {
+                bh.consume(m.group(1));
+                return;
+            }
+        }
+        bh.consume(null);
+    }
+
+    private String nextLine() {
+        String l = lines[cursor];
+        cursor = (cursor + 1) & (lines.length - 1);
+        return l;
+    }
+}
@@ -0,0 +1,45 @@
+package com.sq3rrr.welcomer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runtime switch for debug output (/welcomer debug on|off, persisted in welcomer.conf).
+ *
+ * Messages use SLF4J placeholders and are only formatted when debug is on, so a disabled
+ * call costs one volatile read. Call sites that would box primitives on a hot path
+ * should check isEnabled() first.
+ */
+public final class DebugLog {
+
+    // Same logger as WelcomerMod, looked up by name so this class loads without Minecraft on the classpath
+    private static final Logger LOGGER = LoggerFactory.getLogger(WelcomerMod.MOD_ID);
+    private static volatile boolean enabled = false;
+
+    private DebugLog() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    public static void log(String msg) {
+        if (enabled) LOGGER.info("[DEBUG] {}", msg);
+    }
+
+    public static void log(String format, Object arg) {
+        if (enabled) LOGGER.info("[DEBUG] " + format, arg);
+    }
+
+    public static void log(String format, Object arg1, Object arg2) {
+        if (enabled) LOGGER.info("[DEBUG] " + format, arg1, arg2);
+    }
+
+    public static void log(String format, Object... args) {
+        if (enabled) LOGGER.info("[DEBUG] " + format, args);
+    }
+}
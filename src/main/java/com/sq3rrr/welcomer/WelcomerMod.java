@@ -1,113 +1,152 @@
 package com.sq3rrr.welcomer;
 
+import com.mojang.authlib.GameProfile;
 import com.mojang.brigadier.arguments.StringArgumentType;
+import com.sq3rrr.welcomer.config.ConfigFiles;
+import com.sq3rrr.welcomer.config.ConfigSnapshot;
+import com.sq3rrr.welcomer.config.ConfigStore;
+import com.sq3rrr.welcomer.config.ConfigWatcher;
+import com.sq3rrr.welcomer.config.WelcomerConfig;
+import com.sq3rrr.welcomer.detect.JoinDetector;
+import com.sq3rrr.welcomer.detect.JoinFormat;
+import com.sq3rrr.welcomer.detect.JoinText;
+import com.sq3rrr.welcomer.greet.AdaptiveCooldowns;
+import com.sq3rrr.welcomer.greet.CircuitBreaker;
+import com.sq3rrr.welcomer.greet.Greeter;
+import com.sq3rrr.welcomer.greet.MessagePool;
+import com.sq3rrr.welcomer.greet.GreetingTemplate;
+import com.sq3rrr.welcomer.greet.Mode;
+import com.sq3rrr.welcomer.history.GreetClaims;
+import com.sq3rrr.welcomer.history.GreetHistory;
+import com.sq3rrr.welcomer.history.SeenPlayers;
+import com.sq3rrr.welcomer.ignore.IgnoreRule;
+import com.sq3rrr.welcomer.presence.DetectionMode;
+import com.sq3rrr.welcomer.presence.PlayerListTracker;
+import com.sq3rrr.welcomer.task.Event;
+import com.sq3rrr.welcomer.task.EventLoop;
+import com.sq3rrr.welcomer.task.SessionScheduler;
 import net.fabricmc.api.ClientModInitializer;
 import net.fabricmc.fabric.api.client.command.v2.ClientCommandManager;
 import net.fabricmc.fabric.api.client.command.v2.ClientCommandRegistrationCallback;
+import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientLifecycleEvents;
+import net.fabricmc.fabric.api.client.event.lifecycle.v1.ClientTickEvents;
 import net.fabricmc.fabric.api.client.message.v1.ClientReceiveMessageEvents;
 import net.fabricmc.fabric.api.client.networking.v1.ClientPlayConnectionEvents;
 
-import net.minecraft.client.network.PlayerListEntry;
+import net.minecraft.client.network.ClientPlayNetworkHandler;
 import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.network.ServerInfo;
+import net.minecraft.network.packet.s2c.play.PlayerListS2CPacket;
 import net.minecraft.text.Text;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.util.*;
 import java.util.concurrent.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
 
 public class WelcomerMod implements ClientModInitializer {
 
     public static final String MOD_ID = "welcomer";
     public static final Logger LOGGER = LoggerFactory.getLogger(MOD_ID);
-    private static final boolean DEBUG = true;
 
     private final MinecraftClient client = MinecraftClient.getInstance();
-    private final Pattern joinPattern = Pattern.compile("^(.*?) joined the game$");
+
+    // Greeting pipeline (detection, cooldowns, message rotation, outbox); config is swapped in as snapshots.
+    // Greeter and self-greet state belong to the client thread: other threads post events to the loop.
+    private final EventLoop loop = new EventLoop(4096);
+    private final Greeter greeter = new Greeter(
+            ConfigSnapshot.of(new JoinDetector(ConfigFiles.DEFAULT_JOIN_FORMATS.stream().map(JoinFormat::parse).toList())),
+            System.currentTimeMillis());
 
     // Config paths
     private Path configDir;
-    private Path messagesFile;
-    private Path ignoreFile;
-    private Path selfMessagesFile;
+    private Path metricsFile;
 
+    // welcomer.conf: global settings and per-server profiles, replaced as a whole on every change
+    private final AtomicReference<WelcomerConfig> conf = new AtomicReference<>(WelcomerConfig.empty());
 
-    // Welcome messages
-    private final List<String> welcomeMessages = new ArrayList<>();
-    private final Deque<String> messageQueue = new ArrayDeque<>();
+    // All config file reads/writes go through here; writes happen on a background thread
+    private final ConfigStore store = new ConfigStore(500L);
+    private ConfigFiles files;
 
-    // Cooldowns & state
-    private static final long GREET_COOLDOWN_MS = 5 * 60 * 1000L;
-    private final Map<String, Long> lastGreeted = new ConcurrentHashMap<>();
-    private boolean enabled = false;
+    // Hot reload: edits to the config files are picked up without /welcomer config reload
+    private volatile ConfigWatcher watcher;
 
-    // Self-greet
-    private boolean enabledSelfGreet = false;
-    private static final long SELF_COOLDOWN_MS = 5 * 60 * 1000L;
-    private long lastSelfGreet = 0;
+    // Set once the first snapshot is published; until then chat and player list joins are ignored
+    private volatile boolean configLoaded = false;
 
-    private final List<String> selfMessages = Arrays.asList(
-            "Hello everyone!",
-            "Hope you're all having a great time!",
-            "Happy to be here with you guys!",
-            "Let's have a fun block game session!",
-            "Greetings from me!",
-            "wow I'm here!",
-            "I arrived!",
-            "I m here!",
-            "I made it!",
-            "wow I joined",
-            "There I am.",
-            "Oh, look, it's me!"
-    );
-    private final Deque<String> selfMessageQueue = new ArrayDeque<>();
-
-    // Ignore list (persisted on change)
-    private final Set<String> ignoredPlayers = ConcurrentHashMap.newKeySet();
-
-    // Scheduler for self-greet delays and other safe tasks
-    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
-        Thread t = new Thread(r, "welcomer-scheduler");
-        t.setDaemon(true);
-        return t;
+    // Join detection source, and the player list packets for PLAYER_LIST mode (client thread)
+    private volatile DetectionMode detection = DetectionMode.CHAT;
+    private final PlayerListTracker playerList = new PlayerListTracker(3_000L, new PlayerListTracker.Listener() {
+        @Override
+        public void joined(String name, long now) {
+            loop.post(new Event.PlayerJoined(name, now, DetectionMode.PLAYER_LIST));
+        }
+
+        @Override
+        public void left(String name, long now) {
+            logDebug("Player left: {}", name);
+            loop.post(new Event.PlayerLeft(name, now, DetectionMode.PLAYER_LIST));
+        }
     });
 
-    // ----------------------------
-    // Server mode system
-    // ----------------------------
-    private enum Mode {
-        CONSTANTIAM, DEFAULT, HYPERSAFE
-    }
-    private Mode serverMode = Mode.DEFAULT;
+    // Greeting history of the server we're on, so cooldowns survive reconnects. The scheduler opens
+    // the files, the greeter owns them on the client thread, and they are closed only once it let go
+    private static final int HISTORY_CAPACITY = 4096;
+
+    // Players seen per server, sized from the settings: 1M players at 1% false positives is ~1.2 MB
+    private long seenPlayersExpected = 1_000_000L;
+    private double seenPlayersFalsePositiveRate = 0.01;
+
+    // Optional claims shared with other clients on this machine; off by default. The claims file sits next to
+    // the history unless coordinationDir points all clients (e.g. separate instances) at one folder
+    private volatile boolean coordinate = false;
+    private String coordinationDir = "";
+    private volatile String serverKey;
+
+    // For the mixins, which can't reach the instance Fabric created
+    private static WelcomerMod instance;
+
+    // Self-greet (client thread)
+    private boolean enabledSelfGreet = false;
+    private long selfCooldownMs = 5 * 60 * 1000L;  // from the server's profile
+    private long selfGreetDelayMs = 2_000L;
+    private long lastSelfGreet = 0;
+
+    // Rotation of self-greet messages
+    private MessagePool<GreetingTemplate> selfMessagePool = new MessagePool<>(List.of(), Greeter.NO_REPEAT);
 
-    private long perPlayerCooldown = GREET_COOLDOWN_MS;
-    private long globalCooldown = 30_000L; // Default mode global cooldown
-    private long lastGlobalGreet = 0;
+    // Background thread for config/history IO, plus self-greet delays that are cancelled on disconnect
+    private final SessionScheduler scheduler = new SessionScheduler("welcomer-scheduler");
 
     @Override
     public void onInitializeClient() {
+        long initStart = System.nanoTime();
+        instance = this;
         LOGGER.info("[Welcomer] Initializing no-stats version...");
 
-        // Setup config paths
+        // Setup config paths (no disk access here)
         configDir = client.runDirectory.toPath().resolve("config");
-        messagesFile = configDir.resolve("welcomer_messages.txt");
-        ignoreFile = configDir.resolve("welcomer_ignore.txt");
-        selfMessagesFile = configDir.resolve("welcomer_selfmessages.txt");
+        metricsFile = client.runDirectory.toPath().resolve("logs").resolve("welcomer-metrics.log");
+        files = new ConfigFiles(configDir, store);
 
-        // Load welcome messages and ignore list
-        loadMessages();
-        loadIgnoreList();
-        loadSelfMessages();
+        // Config files are read on the scheduler thread; joins are skipped until it's done
+        scheduler.execute(this::loadConfig);
 
-        // Refill queues
-        refillMessageQueueIfEmpty();
-        refillSelfQueue();
+        // Tell the user when the server's anti-spam paused us
+        greeter.setFeedbackListener(line -> sendClientMessage("§eServer warned about spam, greetings paused for "
+                + greeter.breaker().remaining(System.currentTimeMillis()) / 1000 + "s"));
+
+        // {online} in messages: size of the tab list
+        greeter.setOnlineCount(() -> {
+            ClientPlayNetworkHandler handler = client.getNetworkHandler();
+            return handler == null ? 0 : handler.getPlayerList().size();
+        });
 
         // Register chat listener
         registerChatListener();
@@ -115,274 +154,413 @@ public class WelcomerMod implements ClientModInitializer {
         // Register commands
         registerCommands();
 
+        // Once per tick (client thread): apply queued events, then drain the outbox
+        ClientTickEvents.END_CLIENT_TICK.register(mc -> {
+            loop.drain(this::handle);
+            greeter.tick(System.currentTimeMillis(), this::sendChat);
+        });
+
         // Auto self-greet on join (client player)
         ClientPlayConnectionEvents.JOIN.register((handler, sender, mc) -> {
-            scheduler.schedule(this::greetSelfWithCooldown, 2, TimeUnit.SECONDS); // safe 2s delay
+            long now = System.currentTimeMillis();
+            long session = scheduler.beginSession();
+            playerList.reset(now);
+            loop.post(new Event.Connected(mc.player != null ? mc.player.getName().getString() : null, now));
+            ServerInfo server = mc.getCurrentServerEntry();
+            String serverKey = GreetHistory.serverKey(server == null ? null : server.address);
+            this.serverKey = serverKey;
+            WelcomerConfig.Profile profile = conf.get().profile(serverKey);
+            loop.post(new Event.Task("profile", () -> applyProfile(serverKey, profile)));
+            scheduler.execute(() -> openHistory(serverKey, session));
+            postLater("self-greet", this::greetSelfWithCooldown, profile.selfGreetDelay(), TimeUnit.MILLISECONDS);
+        });
+
+        // Nothing queued for the old server should leak into the next one
+        ClientPlayConnectionEvents.DISCONNECT.register((handler, mc) -> {
+            scheduler.endSession();
+            loop.post(new Event.Disconnected(System.currentTimeMillis()));
+            store.flushSoon();
+        });
+
+        // Make sure pending config writes hit the disk before the game exits
+        ClientLifecycleEvents.CLIENT_STOPPING.register(mc -> {
+            if (watcher != null) watcher.close();
+            store.close();
+            detachHistory();
+            scheduler.close();
         });
 
-        logDebug("WelcomerMod initialized.");
+        LOGGER.info("[Welcomer] Initialized in {} ms, config loading in the background", (System.nanoTime() - initStart) / 1_000_000);
     }
 
-    // ----------------------------
-    // MESSAGES & IGNORE LIST I/O
-    // ----------------------------
-    private void loadMessages() {
-        welcomeMessages.clear();
+    // Runs on the scheduler thread, off the game's init path
+    private void loadConfig() {
         try {
-            if (!Files.exists(configDir)) Files.createDirectories(configDir);
+            loadConfigNow();
+        } catch (RuntimeException e) {
+            // Stay disabled rather than greet with a half-loaded ignore list
+            LOGGER.error("[Welcomer] Failed to load config, greetings stay off until restart", e);
+        }
+    }
 
-            if (Files.exists(messagesFile)) {
-                List<String> lines = Files.readAllLines(messagesFile, StandardCharsets.UTF_8);
-                for (String l : lines) {
-                    String t = l.trim();
-                    if (!t.isEmpty()) welcomeMessages.add(t);
-                }
-            } else {
-                // Fallback defaults
-                welcomeMessages.add("%s welcome!");
-                welcomeMessages.add("Hey %s, nice to see you!");
-                welcomeMessages.add("Welcome %s!");
-                Files.write(messagesFile,
-                        Arrays.asList("# Welcomer messages", "# %s replaced with player name"),
-                        StandardCharsets.UTF_8,
-                        StandardOpenOption.CREATE);
-                Files.write(messagesFile, welcomeMessages, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
-            }
+    private void loadConfigNow() {
+        long start = System.nanoTime();
 
-        } catch (IOException e) {
-            LOGGER.error("[Welcomer] Failed to load messages", e);
-        }
+        // Settings first so debug logging applies to everything below
+        loadSettings();
 
-        // DEBUG LOG: total loaded messages
-        logDebug("Loaded " + welcomeMessages.size() + " welcome messages from file.");
-    }
+        // Load join formats, welcome messages, self-greet messages and ignore list as one snapshot
+        greeter.updateConfig(files::loadAll);
+        configLoaded = true;
 
-    private void loadSelfMessages() {
-        selfMessageQueue.clear();
+        // Watch the config files for edits
+        startWatcher();
 
-        try {
-            if (!Files.exists(configDir)) Files.createDirectories(configDir);
+        // Connected before the config finished loading: apply the real profile now
+        String key = serverKey;
+        if (key != null) {
+            WelcomerConfig.Profile profile = conf.get().profile(key);
+            loop.post(new Event.Task("profile", () -> applyProfile(key, profile)));
+        }
 
-            if (Files.exists(selfMessagesFile)) {
+        // Optional periodic metrics dump (only writes while metrics are on)
+        long dumpMinutes = conf.get().getLong("metricsDumpMinutes", 0);
+        if (dumpMinutes > 0) scheduler.scheduleAtFixedRate(this::dumpMetrics, dumpMinutes, dumpMinutes, TimeUnit.MINUTES);
 
-                List<String> lines = Files.readAllLines(selfMessagesFile, StandardCharsets.UTF_8);
-                List<String> tmp = new ArrayList<>();
+        LOGGER.info("[Welcomer] Config loaded in {} ms", (System.nanoTime() - start) / 1_000_000);
+    }
 
-                for (String l : lines) {
-                    String t = l.trim();
-                    if (!t.isEmpty()) {
-                        tmp.add(t);
-                    }
-                }
+    // ----------------------------
+    // MESSAGES & IGNORE LIST I/O
+    // ----------------------------
+    private void loadSettings() {
+        WelcomerConfig c = files.loadConfig();
+        conf.set(c);
+        DebugLog.setEnabled(c.getBoolean("debug", false));
+        detection = DetectionMode.byKey(c.get("detection", DetectionMode.CHAT.key));
+        greeter.metrics().setEnabled(c.getBoolean("metrics", false));
+        long budget = c.getLong("adaptiveGreetingsPerHour", 60);
+        if (budget > 0 && budget <= Integer.MAX_VALUE) greeter.setAdaptiveBudget((int) budget);
+        long expected = c.getLong("seenPlayersExpected", seenPlayersExpected);
+        if (expected > 0) seenPlayersExpected = expected;
+        double rate = c.getDouble("seenPlayersFalsePositiveRate", seenPlayersFalsePositiveRate);
+        if (rate > 0 && rate < 1) seenPlayersFalsePositiveRate = rate;
+        coordinate = c.getBoolean("coordinate", false);
+        coordinationDir = c.get("coordinationDir", "");
+
+        // Write missing keys with their defaults so they show up in the file
+        updateConf(x -> x.with("debug", DebugLog.isEnabled())
+                .with("detection", detection.key)
+                .with("metrics", greeter.metrics().isEnabled())
+                .with("metricsDumpMinutes", x.getLong("metricsDumpMinutes", 0))
+                .with("adaptiveGreetingsPerHour", greeter.adaptiveBudget())
+                .with("seenPlayersExpected", seenPlayersExpected)
+                .with("seenPlayersFalsePositiveRate", seenPlayersFalsePositiveRate)
+                .with("coordinate", coordinate)
+                .with("coordinationDir", coordinationDir));
+    }
 
-                if (!tmp.isEmpty()) {
-                    Collections.shuffle(tmp);
-                    selfMessageQueue.addAll(tmp);
-                    logDebug("Loaded " + tmp.size() + " custom self-greet messages.");
-                    return;
-                }
-            }
+    /**
+     * Applies a change to welcomer.conf and saves it only if something actually changed. Any thread.
+     */
+    private void updateConf(UnaryOperator<WelcomerConfig> update) {
+        WelcomerConfig before;
+        WelcomerConfig after;
+        do {
+            before = conf.get();
+            after = update.apply(before);
+        } while (!conf.compareAndSet(before, after));
+        if (after != before) files.saveConfig(conf.get());
+    }
 
-            // Fallback to built-in defaults
-            List<String> fallback = new ArrayList<>(selfMessages);
-            Collections.shuffle(fallback);
-            selfMessageQueue.addAll(fallback);
-            logDebug("Using fallback self-greet messages. Count: " + fallback.size());
-
-            // Write template file if missing
-            if (!Files.exists(selfMessagesFile)) {
-                Files.write(selfMessagesFile,
-                        Arrays.asList(
-                                "# Self-greet messages",
-                                "# One message per line",
-                                "# If this file is empty, fallback messages will be used."
-                        ),
-                        StandardCharsets.UTF_8,
-                        StandardOpenOption.CREATE
-                );
-                Files.write(selfMessagesFile, selfMessages, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
-            }
+    // Remembers a toggle or mode in the current server's profile
+    private void setProfileValue(String key, Object value) {
+        String profile = currentProfile();
+        updateConf(c -> c.withProfileValue(profile, key, value));
+    }
 
-        } catch (IOException e) {
-            LOGGER.error("[Welcomer] Failed to load self-greet messages", e);
-        }
+    // Section commands write to: the server we're on ([default] in menus)
+    private String currentProfile() {
+        String server = serverKey;
+        return server == null ? WelcomerConfig.DEFAULT_PROFILE : server;
     }
 
+    // Client thread, on connect: one lookup instead of setting mode and toggles by hand per server
+    private void applyProfile(String serverKey, WelcomerConfig.Profile p) {
+        greeter.setEnabled(p.enabled());
+        enabledSelfGreet = p.selfGreet();
+        selfCooldownMs = p.selfCooldown();
+        selfGreetDelayMs = p.selfGreetDelay();
+        greeter.updateConfig(c -> c.toBuilder()
+                .mode(p.mode())
+                .cooldowns(p.perPlayerCooldown(), p.globalCooldown())
+                .serverJoinDetector(p.joinDetector())
+                .build());
+        DebugLog.log("Profile {}: mode {}, enabled {}, self-greet {}", conf.get().hasProfile(serverKey) ? serverKey : WelcomerConfig.DEFAULT_PROFILE,
+                p.mode(), p.enabled(), p.selfGreet());
+    }
 
-    private void loadIgnoreList() {
-        ignoredPlayers.clear();
+    // Written by the store's io thread after a short debounce
+    private void persistIgnoreList() {
+        files.saveIgnore(greeter.config().ignore());
+    }
+
+    private void startWatcher() {
+        watcher = new ConfigWatcher(configDir, files.watchedFiles(), 250L, this::onConfigFilesChanged);
         try {
-            if (!Files.exists(configDir)) Files.createDirectories(configDir);
-            if (Files.exists(ignoreFile)) {
-                List<String> lines = Files.readAllLines(ignoreFile, StandardCharsets.UTF_8);
-                for (String l : lines) {
-                    String s = l.trim();
-                    if (!s.isEmpty()) ignoredPlayers.add(s);
-                }
-            } else {
-                Files.write(ignoreFile, Collections.emptyList(), StandardCharsets.UTF_8, StandardOpenOption.CREATE);
-            }
+            watcher.start();
         } catch (IOException e) {
-            LOGGER.error("[Welcomer] Failed to load ignore list", e);
+            LOGGER.error("[Welcomer] Failed to watch config files, use /welcomer config reload", e);
         }
-        logDebug("Loaded " + ignoredPlayers.size() + " ignored players from file.");
     }
 
-    private void persistIgnoreList() {
-        try {
-            List<String> lines = new ArrayList<>(ignoredPlayers);
-            Collections.sort(lines, String.CASE_INSENSITIVE_ORDER);
-            Files.write(ignoreFile, lines, StandardCharsets.UTF_8,
-                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
-            logDebug("Ignore list persisted with " + lines.size() + " players.");
-        } catch (IOException e) {
-            LOGGER.error("[Welcomer] Failed to persist ignore list", e);
+    // Runs on the watcher thread: parse here, then swap the snapshot in one step
+    private void onConfigFilesChanged(Set<Path> changed) {
+        ConfigSnapshot before = greeter.config();
+        ConfigSnapshot after = greeter.updateConfig(files.reload(changed));
+        if (after != before) {
+            LOGGER.info("[Welcomer] Reloaded {}", changed.stream().map(p -> p.getFileName().toString()).sorted().toList());
         }
     }
 
     // ----------------------------
     // MESSAGE QUEUES
     // ----------------------------
-    private void refillMessageQueueIfEmpty() {
-        if (messageQueue.isEmpty()) {
-            if (welcomeMessages.isEmpty()) {
-                logDebug("Welcome messages list is empty — cannot refill message queue.");
-                return;
-            }
-            List<String> tmp = new ArrayList<>(welcomeMessages);
-            Collections.shuffle(tmp);
-            messageQueue.addAll(tmp);
-            logDebug("Message queue refilled with perfect shuffle.");
-        }
-    }
-
-    private void refillSelfQueue() {
-        if (selfMessageQueue.isEmpty()) {
-            if (!Files.exists(selfMessagesFile) || selfMessagesFile.toFile().length() == 0) {
-                // fallback to built-in defaults
-                List<String> tmp = new ArrayList<>(selfMessages);
-                Collections.shuffle(tmp);
-                selfMessageQueue.addAll(tmp);
-                logDebug("Self-greet queue refilled with fallback messages. Queue size: " + selfMessageQueue.size());
-            } else {
-                // use loaded messages from file
-                loadSelfMessages(); // ensures selfMessageQueue is filled from file
-                logDebug("Self-greet queue refilled from file. Queue size: " + selfMessageQueue.size());
-            }
+    private MessagePool<GreetingTemplate> selfMessages() {
+        List<GreetingTemplate> selfMessages = greeter.config().selfMessages();
+        if (selfMessages != selfMessagePool.source()) {
+            // Self-greet messages were reloaded: start a rotation over the new list
+            selfMessagePool = new MessagePool<>(selfMessages, Greeter.NO_REPEAT);
+            logDebug("Self-greet pool rebuilt. Size: {}", selfMessagePool.size());
         }
+        return selfMessagePool;
     }
 
 
     // ----------------------------
-    // GREETING
+    // EVENT LOOP
     // ----------------------------
-    private void greetPlayer(String player) {
-        if (!enabled || player == null || player.isEmpty() || ignoredPlayers.contains(player)) {
-            logDebug("Skipped greeting for player: " + player);
-            return;
-        }
-
-        long now = System.currentTimeMillis();
 
-        /*
-         Mode rules (applied here):
-         - DEFAULT: only per-player cooldown matters (global ignored).
-         - CONSTANTIAM: global cooldown checked first, then per-player cooldown.
-         - HYPERSAFE: same as CONSTANTIAM but with longer cooldowns.
-         */
-
-        if (serverMode == Mode.DEFAULT) {
-            // DEFAULT: per-player only
-            long last = lastGreeted.getOrDefault(player, 0L);
-            if (now - last < perPlayerCooldown) {
-                logDebug("Per-player cooldown active for " + player + ". Skipping greeting.");
-                return;
+    // Client thread, from loop.drain()
+    private void handle(Event event) {
+        switch (event) {
+            case Event.ChatLine e -> {
+                if (!configLoaded) return;
+                // Feedback is checked in every detection mode, joins only when they come from chat
+                if (detection == DetectionMode.CHAT) greeter.onGameMessage(e.line(), e.at());
+                else greeter.onServerMessage(e.line(), e.at());
             }
-            lastGreeted.put(player, now);
-            // Do NOT bump lastGlobalGreet (global ignored in DEFAULT)
-        } else {
-            // CONSTANTIAM or HYPERSAFE: enforce global cooldown first (if >0), then per-player
-            if (globalCooldown > 0 && now - lastGlobalGreet < globalCooldown) {
-                logDebug("Global cooldown active. Skipping greeting for player: " + player);
-                return;
+            case Event.ServerLine e -> {
+                if (configLoaded) greeter.onServerMessage(e.line(), e.at());
             }
-            long last = lastGreeted.getOrDefault(player, 0L);
-            if (now - last < perPlayerCooldown) {
-                logDebug("Per-player cooldown active for " + player + ". Skipping greeting.");
-                return;
+            case Event.PlayerJoined e -> {
+                if (configLoaded && detection == e.source()) greeter.onPlayerJoined(e.name(), e.at());
             }
-            // passed both checks
-            lastGreeted.put(player, now);
-            lastGlobalGreet = now;
-        }
-
-        refillMessageQueueIfEmpty();
-        String raw = messageQueue.poll();
-        if (raw == null) {
-            logDebug("Message queue empty after refill, skipping greeting for player: " + player);
-            return; // defensive null check
+            case Event.PlayerLeft e -> {
+                if (configLoaded && detection == e.source()) greeter.onPlayerLeft(e.name(), e.at());
+            }
+            case Event.Connected e -> greeter.setSelfName(e.selfName());
+            case Event.Disconnected e -> {
+                greeter.outbox().clear();
+                // Every event of the old session that could append to these was handled before this one
+                detachHistory();
+            }
+            case Event.Task e -> e.action().run();
         }
+    }
 
-        String msg = raw.contains("%s") ? String.format(raw, player) : raw + " " + player;
-
-        client.execute(() -> {
-            if (client.player != null && client.player.networkHandler != null) {
-                client.player.networkHandler.sendChatMessage(msg);
-                logDebug("Greeted " + player + ": " + msg + " | Messages left in queue: " + messageQueue.size());
-            }
-        });
+    // Runs action on the client thread after the delay, unless we disconnect first
+    private void postLater(String name, Runnable action, long delay, TimeUnit unit) {
+        long session = scheduler.session();
+        scheduler.schedule(name, () -> loop.post(new Event.Task(name, () -> {
+            if (scheduler.isCurrent(session)) action.run();
+        })), delay, unit);
     }
 
+    // ----------------------------
+    // GREETING
+    // ----------------------------
+
+    // Client thread
     private void greetSelfWithCooldown() {
         if (!enabledSelfGreet || client.player == null) {
-            logDebug("Self-greet skipped: enabledSelfGreet=" + enabledSelfGreet + ", client.player=" + client.player);
+            logDebug("Self-greet skipped: enabledSelfGreet={}, client.player={}", enabledSelfGreet, client.player);
             return;
         }
 
         long now = System.currentTimeMillis();
-        if (now - lastSelfGreet < SELF_COOLDOWN_MS) {
-            logDebug("Self-greet cooldown active. Time remaining: " + (SELF_COOLDOWN_MS - (now - lastSelfGreet)) + "ms");
+        if (now - lastSelfGreet < selfCooldownMs) {
+            logDebug("Self-greet cooldown active. Time remaining: {}ms", selfCooldownMs - (now - lastSelfGreet));
             return;
         }
 
         lastSelfGreet = now;
-        refillSelfQueue();
-        String msg = selfMessageQueue.poll();
-        if (msg == null) {
-            logDebug("Self-greet queue empty after refill, skipping self-greet.");
-            return; // defensive null check
+        GreetHistory h = greeter.history();
+        if (h != null) h.setLastSelf(now);
+        GreetingTemplate template = selfMessages().next();
+        if (template == null) {
+            logDebug("No self-greet messages, skipping self-greet.");
+            return;
         }
-        logDebug("Self-greet message selected: " + msg);
+        logDebug("Self-greet message selected: {}", template);
+        String selfName = client.player.getName().getString();
+
+        postLater("self-greet-send", () -> {
+            long sendNow = System.currentTimeMillis();
+            String msg = greeter.render(template, selfName, sendNow);
+            greeter.outbox().offerMessage(msg, sendNow);
+            logDebug("Self-greet queued: {} | Left in this rotation: {}", msg, selfMessagePool.remaining());
+        }, selfGreetDelayMs, TimeUnit.MILLISECONDS);
+    }
 
-        scheduler.schedule(() -> client.execute(() -> {
-            try {
-                if (client.player != null && client.player.networkHandler != null) {
-                    client.player.networkHandler.sendChatMessage(msg);
-                    logDebug("Self-greet sent: " + msg + " | Self queue size: " + selfMessageQueue.size());
+    // ----------------------------
+    // HISTORY
+    // ----------------------------
+
+    // Runs on the scheduler thread; the files are handed to the greeter through the event loop afterwards
+    private void openHistory(String serverKey, long session) {
+        Path file = configDir.resolve("welcomer_servers").resolve(serverKey).resolve("history.bin");
+        long now = System.currentTimeMillis();
+        try {
+            GreetHistory h = GreetHistory.open(file, HISTORY_CAPACITY);
+            List<GreetHistory.Entry> recent = h.recent(now, Greeter.longestCooldown());
+            long lastGlobal = h.lastGlobal();
+            long lastSelf = h.lastSelf();
+            loop.post(new Event.Task("history", () -> {
+                // Disconnected before it arrived: nobody will use it
+                if (!scheduler.isCurrent(session)) {
+                    closeLater(h, "greeting history");
+                    return;
                 }
-            } catch (Exception ex) {
-                LOGGER.error("[Welcomer] Self-greet scheduler error", ex);
+                GreetHistory old = greeter.history();
+                greeter.useHistory(h, recent, lastGlobal);
+                closeLater(old, "greeting history");
+                lastSelfGreet = Math.max(lastSelfGreet, lastSelf);
+            }));
+            logDebug("Loaded greeting history for {}: {} players still cooling down", serverKey, recent.size());
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("[Welcomer] Failed to open greeting history " + file, e);
+            loop.post(new Event.Task("history", () -> {
+                if (!scheduler.isCurrent(session)) return;
+                GreetHistory old = greeter.history();
+                greeter.useHistory(null, List.of(), 0L);
+                closeLater(old, "greeting history");
+            }));
+        }
+
+        Path seenFile = file.resolveSibling("seen.bin");
+        try {
+            SeenPlayers seen = SeenPlayers.open(seenFile, seenPlayersExpected, seenPlayersFalsePositiveRate);
+            loop.post(new Event.Task("seen-players", () -> {
+                if (!scheduler.isCurrent(session)) {
+                    closeLater(seen, "seen players");
+                    return;
+                }
+                SeenPlayers old = greeter.seenPlayers();
+                greeter.useSeenPlayers(seen);
+                closeLater(old, "seen players");
+            }));
+            logDebug("Loaded seen players for {}: ~{} players", serverKey, seen.count());
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("[Welcomer] Failed to open seen players " + seenFile, e);
+        }
+
+        if (coordinate) openClaims(serverKey, session);
+    }
+
+    // Runs on the scheduler thread
+    private void openClaims(String serverKey, long session) {
+        Path dir = coordinationDir.isBlank() ? configDir.resolve("welcomer_servers") : Path.of(coordinationDir);
+        Path file = dir.resolve(serverKey).resolve("claims.bin");
+        try {
+            GreetClaims c = GreetClaims.open(file);
+            loop.post(new Event.Task("claims", () -> {
+                if (!scheduler.isCurrent(session) || !coordinate) {
+                    closeLater(c, "greeting claims");
+                    return;
+                }
+                GreetClaims old = greeter.claims();
+                greeter.useClaims(c);
+                closeLater(old, "greeting claims");
+            }));
+            logDebug("Coordinating greetings for {} through {}", serverKey, file);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("[Welcomer] Failed to open greeting claims " + file + ", greeting without coordination", e);
+        }
+    }
+
+    // Client thread: takes the files away from the greeter, then closes them in the background
+    private void detachHistory() {
+        GreetHistory h = greeter.history();
+        SeenPlayers seen = greeter.seenPlayers();
+        GreetClaims c = greeter.claims();
+        greeter.leaveServer();
+        greeter.useSeenPlayers(null);
+        greeter.useClaims(null);
+        closeLater(h, "greeting history");
+        closeLater(seen, "seen players");
+        closeLater(c, "greeting claims");
+    }
+
+    // Client thread; closing may block on the disk, so it runs on the scheduler
+    private void closeLater(AutoCloseable file, String what) {
+        if (file == null) return;
+        scheduler.execute(() -> {
+            try {
+                file.close();
+            } catch (Exception e) {
+                LOGGER.error("[Welcomer] Failed to close " + what, e);
             }
-        }), 2, TimeUnit.SECONDS);
+        });
     }
 
     // ----------------------------
     // CHAT LISTENER
     // ----------------------------
     private void registerChatListener() {
+        // Only queues the line; it is matched on the next tick. Vanilla messages are recognised by
+        // their translation key, only unknown ones are flattened for the join formats. Lines are
+        // queued in every detection mode, since server feedback must reach the circuit breaker.
         ClientReceiveMessageEvents.GAME.register((message, overlay) -> {
-            String msg = message.getString();
-            Matcher m = joinPattern.matcher(msg);
-            if (m.matches()) {
-                String playerName = m.group(1);
-
-                if (client.player != null && playerName.equals(client.player.getName().getString())) return;
-
-                greetPlayer(playerName);
+            if (!configLoaded) return;
+            long now = System.currentTimeMillis();
+            JoinText.Result vanilla = JoinText.classify(message);
+            if (vanilla == null) {
+                loop.post(new Event.ChatLine(message.getString(), now));
+                return;
+            }
+            switch (vanilla.kind()) {
+                case JOINED -> loop.post(new Event.PlayerJoined(vanilla.name(), now, DetectionMode.CHAT));
+                case LEFT -> loop.post(new Event.PlayerLeft(vanilla.name(), now, DetectionMode.CHAT));
+                case OTHER -> {
+                    if (detection == DetectionMode.CHAT && greeter.metrics().isEnabled()) greeter.metrics().record(Greeter.Decision.NOT_JOIN);
+                    loop.post(new Event.ServerLine(message.getString(), now));
+                }
             }
         });
     }
 
+    // ----------------------------
+    // PLAYER LIST (called from PlayerListMixin on the client thread)
+    // ----------------------------
+    public static void onPlayersAdded(List<PlayerListS2CPacket.Entry> entries) {
+        if (instance == null || entries.isEmpty()) return;
+        long now = System.currentTimeMillis();
+        PlayerListTracker tracker = instance.playerList;
+        boolean quiet = tracker.beginAdds(now);
+        for (PlayerListS2CPacket.Entry e : entries) {
+            GameProfile profile = e.profile();
+            if (profile != null) tracker.added(e.profileId(), profile.getName(), now, quiet);
+        }
+        if (quiet) logDebug("Player list synced quietly: {} online", tracker.online());
+    }
+
+    public static void onPlayersRemoved(List<UUID> ids) {
+        if (instance == null) return;
+        long now = System.currentTimeMillis();
+        for (UUID id : ids) instance.playerList.removed(id, now);
+    }
+
     // ----------------------------
     // COMMANDS
     // ----------------------------
@@ -397,9 +575,10 @@ public class WelcomerMod implements ClientModInitializer {
                             // Toggle main Welcomer
                             .then(ClientCommandManager.literal("toggle")
                                     .executes(ctx -> {
-                                        enabled = !enabled;
-                                        sendClientMessage("Welcomer is now: " + (enabled ? "§aON" : "§cOFF"));
-                                        logDebug("Welcomer toggled = " + enabled);
+                                        greeter.setEnabled(!greeter.isEnabled());
+                                        setProfileValue("enabled", greeter.isEnabled());
+                                        sendClientMessage("Welcomer is now: " + (greeter.isEnabled() ? "§aON" : "§cOFF"));
+                                        logDebug("Welcomer toggled = {}", greeter.isEnabled());
                                         return 1;
                                     })
                             )
@@ -409,8 +588,88 @@ public class WelcomerMod implements ClientModInitializer {
                                     .then(ClientCommandManager.literal("toggle")
                                             .executes(ctx -> {
                                                 enabledSelfGreet = !enabledSelfGreet;
+                                                setProfileValue("selfGreet", enabledSelfGreet);
                                                 sendClientMessage("Self-greet is now: " + (enabledSelfGreet ? "§aON" : "§cOFF"));
-                                                logDebug("Self-greet toggled = " + enabledSelfGreet);
+                                                logDebug("Self-greet toggled = {}", enabledSelfGreet);
+                                                return 1;
+                                            })
+                                    )
+                            )
+
+                            // Runtime debug logging (persisted)
+                            .then(ClientCommandManager.literal("debug")
+                                    .then(ClientCommandManager.literal("on")
+                                            .executes(ctx -> {
+                                                setDebug(true);
+                                                return 1;
+                                            })
+                                    )
+                                    .then(ClientCommandManager.literal("off")
+                                            .executes(ctx -> {
+                                                setDebug(false);
+                                                return 1;
+                                            })
+                                    )
+                            )
+
+                            // Opt-in metrics (persisted)
+                            .then(ClientCommandManager.literal("stats")
+                                    .executes(ctx -> {
+                                        if (!greeter.metrics().isEnabled()) {
+                                            sendClientMessage("Metrics are §cOFF§r, turn them on with /welcomer stats on");
+                                            return 1;
+                                        }
+                                        for (String line : greeter.metrics().summary(System.currentTimeMillis())) sendClientMessage(line);
+                                        return 1;
+                                    })
+                                    .then(ClientCommandManager.literal("on")
+                                            .executes(ctx -> {
+                                                setMetrics(true);
+                                                return 1;
+                                            })
+                                    )
+                                    .then(ClientCommandManager.literal("off")
+                                            .executes(ctx -> {
+                                                setMetrics(false);
+                                                return 1;
+                                            })
+                                    )
+                                    .then(ClientCommandManager.literal("reset")
+                                            .executes(ctx -> {
+                                                greeter.metrics().reset();
+                                                sendClientMessage("Metrics reset.");
+                                                return 1;
+                                            })
+                                    )
+                            )
+
+                            // Share claims with the other clients on this machine so only one greets each join (persisted)
+                            .then(ClientCommandManager.literal("coordinate")
+                                    .then(ClientCommandManager.literal("on")
+                                            .executes(ctx -> {
+                                                setCoordinate(true);
+                                                return 1;
+                                            })
+                                    )
+                                    .then(ClientCommandManager.literal("off")
+                                            .executes(ctx -> {
+                                                setCoordinate(false);
+                                                return 1;
+                                            })
+                                    )
+                            )
+
+                            // Join detection source (persisted)
+                            .then(ClientCommandManager.literal("detection")
+                                    .then(ClientCommandManager.literal("chat")
+                                            .executes(ctx -> {
+                                                setDetection(DetectionMode.CHAT);
+                                                return 1;
+                                            })
+                                    )
+                                    .then(ClientCommandManager.literal("playerlist")
+                                            .executes(ctx -> {
+                                                setDetection(DetectionMode.PLAYER_LIST);
                                                 return 1;
                                             })
                                     )
@@ -419,41 +678,65 @@ public class WelcomerMod implements ClientModInitializer {
                             // Show status of toggles
                             .then(ClientCommandManager.literal("status")
                                     .executes(ctx -> {
-                                        String msg = "Welcomer: " + (enabled ? "§aON" : "§cOFF") +
+                                        String msg = "Welcomer: " + (greeter.isEnabled() ? "§aON" : "§cOFF") +
+                                                " | Profile: " + (conf.get().hasProfile(serverKey) ? serverKey : WelcomerConfig.DEFAULT_PROFILE) +
                                                 " | Self-greet: " + (enabledSelfGreet ? "§aON" : "§cOFF") +
-                                                " | Mode: " + serverMode.name();
+                                                " | Debug: " + (DebugLog.isEnabled() ? "§aON" : "§cOFF") +
+                                                " | Metrics: " + (greeter.metrics().isEnabled() ? "§aON" : "§cOFF") +
+                                                " | Mode: " + greeter.mode().name() + adaptiveStatus() +
+                                                " | Detection: " + detection.key + " (" + playerList.online() + " online)" +
+                                                " | Cooling down: " + greeter.coolingDown(System.currentTimeMillis()) +
+                                                " | Tracked players: " + greeter.presence().size() +
+                                                " | Seen: " + seenStatus() +
+                                                " | Coordinate: " + coordinateStatus() +
+                                                " | Outbox: " + greeter.outbox().pending() + " (stale dropped: " + greeter.outbox().droppedStale() + ")" +
+                                                " | Scheduled: " + scheduler.pending() +
+                                                " | Events: " + loop.pending() + " queued, " + loop.dropped() + " dropped" +
+                                                " | Breaker: " + breakerStatus();
                                         sendClientMessage(msg);
-                                        logDebug("Status requested: " + msg);
+                                        logDebug("Status requested: {}", msg);
                                         return 1;
                                     })
                             )
 
-                            // Ignore a player
+                            // Ignore a player or a rule (Bot_*, *_alt, regex:...)
                             .then(ClientCommandManager.literal("ignore")
-                                    .then(ClientCommandManager.argument("player", StringArgumentType.string())
+                                    .then(ClientCommandManager.argument("player", StringArgumentType.greedyString())
                                             .executes(ctx -> {
-                                                String p = StringArgumentType.getString(ctx, "player");
-                                                if (p != null && !p.isEmpty()) {
-                                                    ignoredPlayers.add(p);
+                                                String p = StringArgumentType.getString(ctx, "player").trim();
+                                                if (!p.isEmpty()) {
+                                                    IgnoreRule rule;
+                                                    try {
+                                                        rule = IgnoreRule.parse(p);
+                                                    } catch (IllegalArgumentException e) {
+                                                        sendClientMessage("§cInvalid ignore rule: §f" + e.getMessage());
+                                                        return 0;
+                                                    }
+                                                    greeter.updateConfig(c -> c.withIgnore(c.ignore().with(rule)));
                                                     persistIgnoreList();
                                                     sendClientMessage("§cNow ignoring §f" + p);
-                                                    logDebug("Player ignored: " + p);
+                                                    logDebug("Player ignored: {}", p);
                                                 }
                                                 return 1;
                                             })
                                     )
                             )
 
-                            // Unignore a player
+                            // Unignore a player or remove a rule
                             .then(ClientCommandManager.literal("unignore")
-                                    .then(ClientCommandManager.argument("player", StringArgumentType.string())
+                                    .then(ClientCommandManager.argument("player", StringArgumentType.greedyString())
                                             .executes(ctx -> {
-                                                String p = StringArgumentType.getString(ctx, "player");
-                                                if (p != null && !p.isEmpty()) {
-                                                    ignoredPlayers.remove(p);
+                                                String p = StringArgumentType.getString(ctx, "player").trim();
+                                                if (!p.isEmpty()) {
+                                                    ConfigSnapshot updated = greeter.updateConfig(c -> c.withIgnore(c.ignore().without(p)));
                                                     persistIgnoreList();
-                                                    sendClientMessage("§aRemoved from ignore: §f" + p);
-                                                    logDebug("Player unignored: " + p);
+                                                    IgnoreRule still = updated.ignore().matchingRule(p);
+                                                    if (still != null) {
+                                                        sendClientMessage("§e" + p + " is still ignored by rule §f" + still.source());
+                                                    } else {
+                                                        sendClientMessage("§aRemoved from ignore: §f" + p);
+                                                    }
+                                                    logDebug("Player unignored: {}", p);
                                                 }
                                                 return 1;
                                             })
@@ -464,9 +747,7 @@ public class WelcomerMod implements ClientModInitializer {
                             .then(ClientCommandManager.literal("mode")
                                     .then(ClientCommandManager.literal("constantiam")
                                             .executes(ctx -> {
-                                                serverMode = Mode.CONSTANTIAM;
-                                                perPlayerCooldown = 5 * 60 * 1000L; // 5 min per player
-                                                globalCooldown = 5 * 60 * 1000L;    // 5 min global cooldown
+                                                setMode(Mode.CONSTANTIAM);
                                                 sendClientMessage("Server mode set to CONSTANTIAM");
                                                 logDebug("Server mode switched to CONSTANTIAM");
                                                 return 1;
@@ -474,9 +755,7 @@ public class WelcomerMod implements ClientModInitializer {
                                     )
                                     .then(ClientCommandManager.literal("default")
                                             .executes(ctx -> {
-                                                serverMode = Mode.DEFAULT;
-                                                perPlayerCooldown = 5 * 60 * 1000L; // 5 min per player
-                                                globalCooldown = 0;                 // global cooldown ignored
+                                                setMode(Mode.DEFAULT);
                                                 sendClientMessage("Server mode set to DEFAULT");
                                                 logDebug("Server mode switched to DEFAULT");
                                                 return 1;
@@ -484,14 +763,20 @@ public class WelcomerMod implements ClientModInitializer {
                                     )
                                     .then(ClientCommandManager.literal("hypersafe")
                                             .executes(ctx -> {
-                                                serverMode = Mode.HYPERSAFE;
-                                                perPlayerCooldown = 10 * 60 * 1000L; // 10 min per player
-                                                globalCooldown = 10 * 60 * 1000L;    // 10 min global cooldown
+                                                setMode(Mode.HYPERSAFE);
                                                 sendClientMessage("Server mode set to HYPERSAFE");
                                                 logDebug("Server mode switched to HYPERSAFE");
                                                 return 1;
                                             })
                                     )
+                                    .then(ClientCommandManager.literal("adaptive")
+                                            .executes(ctx -> {
+                                                setMode(Mode.ADAPTIVE);
+                                                sendClientMessage("Server mode set to ADAPTIVE (" + greeter.adaptiveBudget() + " greetings/hour)");
+                                                logDebug("Server mode switched to ADAPTIVE");
+                                                return 1;
+                                            })
+                                    )
                             )
 
                             .then(ClientCommandManager.literal("info")
@@ -516,19 +801,29 @@ public class WelcomerMod implements ClientModInitializer {
                                     // Reload welcome messages from file
                                     .then(ClientCommandManager.literal("reload")
                                             .executes(ctx -> {
-                                                loadMessages();
-                                                refillMessageQueueIfEmpty();
+                                                greeter.updateConfig(c -> c.withMessages(files.loadMessages()));
                                                 sendClientMessage("Welcome messages reloaded!");
                                                 logDebug("Messages reloaded via command.");
                                                 return 1;
                                             })
                                     )
 
+                                    // Reload join formats from file
+                                    .then(ClientCommandManager.literal("reloadformats")
+                                            .executes(ctx -> {
+                                                JoinDetector join = files.loadJoinDetector();
+                                                JoinDetector leave = files.loadLeaveDetector();
+                                                greeter.updateConfig(c -> c.withJoinDetector(join).withLeaveDetector(leave));
+                                                sendClientMessage("Join formats reloaded! (" + join.size() + " join, " + leave.size() + " leave)");
+                                                logDebug("Join formats reloaded via command.");
+                                                return 1;
+                                            })
+                                    )
+
                                     // Reload self-greet messages from file
                                     .then(ClientCommandManager.literal("reloadself")
                                             .executes(ctx -> {
-                                                loadSelfMessages();
-                                                refillSelfQueue();
+                                                greeter.updateConfig(c -> c.withSelfMessages(files.loadSelfMessages()));
                                                 sendClientMessage("Self-greet messages reloaded!");
                                                 logDebug("Self-greet messages reloaded via command.");
                                                 return 1;
@@ -539,19 +834,18 @@ public class WelcomerMod implements ClientModInitializer {
                                     .then(ClientCommandManager.literal("add")
                                             .then(ClientCommandManager.argument("message", StringArgumentType.greedyString())
                                                     .executes(ctx -> {
-                                                        String newMsg = StringArgumentType.getString(ctx, "message");
-                                                        if (newMsg != null && !newMsg.isEmpty()) {
-                                                            try {
-                                                                if (!Files.exists(configDir)) Files.createDirectories(configDir);
-                                                                Files.writeString(messagesFile, newMsg + "\n", StandardCharsets.UTF_8,
-                                                                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
-                                                                welcomeMessages.add(newMsg);
-                                                                sendClientMessage("§aAdded new welcome message:§f " + newMsg);
-                                                                logDebug("Added new message: " + newMsg);
-                                                            } catch (IOException e) {
-                                                                sendClientMessage("§4Failed to save new message.");
-                                                                LOGGER.error("[Welcomer] Failed to write new message", e);
-                                                            }
+                                                        String newMsg = StringArgumentType.getString(ctx, "message").trim();
+                                                        if (!newMsg.isEmpty()) {
+                                                            GreetingTemplate compiled = compileOrReport(newMsg);
+                                                            if (compiled == null) return 0;
+                                                            files.appendMessage(newMsg);
+                                                            greeter.updateConfig(c -> {
+                                                                List<GreetingTemplate> messages = new ArrayList<>(c.messages());
+                                                                messages.add(compiled);
+                                                                return c.withMessages(messages);
+                                                            });
+                                                            sendClientMessage("§aAdded new welcome message:§f " + newMsg);
+                                                            logDebug("Added new message: {}", newMsg);
                                                         }
                                                         return 1;
                                                     })
@@ -560,19 +854,18 @@ public class WelcomerMod implements ClientModInitializer {
                                             .then(ClientCommandManager.literal("addself")
                                                     .then(ClientCommandManager.argument("message", StringArgumentType.greedyString())
                                                             .executes(ctx -> {
-                                                                String newMsg = StringArgumentType.getString(ctx, "message");
-                                                                if (newMsg != null && !newMsg.isEmpty()) {
-                                                                    try {
-                                                                        if (!Files.exists(configDir)) Files.createDirectories(configDir);
-                                                                        Files.writeString(selfMessagesFile, newMsg + "\n", StandardCharsets.UTF_8,
-                                                                                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
-                                                                        selfMessageQueue.add(newMsg);
-                                                                        sendClientMessage("§aAdded new self-greet message:§f " + newMsg);
-                                                                        logDebug("Added new self-greet message: " + newMsg);
-                                                                    } catch (IOException e) {
-                                                                        sendClientMessage("§4Failed to save new self-greet message.");
-                                                                        LOGGER.error("[Welcomer] Failed to write new self-greet message", e);
-                                                                    }
+                                                                String newMsg = StringArgumentType.getString(ctx, "message").trim();
+                                                                if (!newMsg.isEmpty()) {
+                                                                    GreetingTemplate compiled = compileOrReport(newMsg);
+                                                                    if (compiled == null) return 0;
+                                                                    files.appendSelfMessage(newMsg);
+                                                                    greeter.updateConfig(c -> {
+                                                                        List<GreetingTemplate> selfMessages = new ArrayList<>(c.selfMessages());
+                                                                        selfMessages.add(compiled);
+                                                                        return c.withSelfMessages(selfMessages);
+                                                                    });
+                                                                    sendClientMessage("§aAdded new self-greet message:§f " + newMsg);
+                                                                    logDebug("Added new self-greet message: {}", newMsg);
                                                                 }
                                                                 return 1;
                                                             })
@@ -590,13 +883,121 @@ public class WelcomerMod implements ClientModInitializer {
     // ----------------------------
     // UTILITIES
     // ----------------------------
+    private void setDebug(boolean on) {
+        DebugLog.setEnabled(on);
+        updateConf(c -> c.with("debug", on));
+        sendClientMessage("Debug logging is now: " + (on ? "§aON" : "§cOFF"));
+    }
+
+    private GreetingTemplate compileOrReport(String message) {
+        try {
+            return GreetingTemplate.compile(message);
+        } catch (IllegalArgumentException e) {
+            sendClientMessage("§cInvalid message: §f" + e.getMessage());
+            return null;
+        }
+    }
+
+    // "~1234 (fp 0.01%)" or "-" when not connected
+    private String seenStatus() {
+        SeenPlayers s = greeter.seenPlayers();
+        return s == null ? "-" : "~" + s.count() + String.format(Locale.ROOT, " (fp %.2f%%)", s.falsePositiveRate() * 100);
+    }
+
+    // "OFF", or "ON (3 claims)" with the live claims of every client on this server
+    private String coordinateStatus() {
+        if (!coordinate) return "§cOFF§r";
+        GreetClaims c = greeter.claims();
+        return "§aON§r" + (c == null ? "" : " (" + c.live(System.currentTimeMillis()) + " claims)");
+    }
+
+    // "CLOSED", "OPEN (25s left, 2 trips)" or "HALF_OPEN"
+    private String breakerStatus() {
+        CircuitBreaker b = greeter.breaker();
+        long left = b.remaining(System.currentTimeMillis());
+        return b.state().name() + (left > 0 ? " (" + left / 1000 + "s left, " + b.trips() + " trips)" : "");
+    }
+
+    // " (12 joins/h, 5m/player, 0s global)" while in ADAPTIVE mode
+    private String adaptiveStatus() {
+        if (greeter.mode() != Mode.ADAPTIVE) return "";
+        AdaptiveCooldowns a = greeter.adaptive(System.currentTimeMillis());
+        ConfigSnapshot c = greeter.config();
+        return String.format(Locale.ROOT, " (%.0f joins/h, %dm/player, %ds global)", a.joinsPerHour(),
+                Math.max(c.perPlayerCooldown(), a.perPlayerCooldown()) / 60_000L, Math.max(c.globalCooldown(), a.globalCooldown()) / 1000L);
+    }
+
+    private void setDetection(DetectionMode mode) {
+        detection = mode;
+        updateConf(c -> c.with("detection", mode.key));
+        sendClientMessage("Join detection is now: " + mode.key);
+    }
+
+    private void setCoordinate(boolean on) {
+        coordinate = on;
+        updateConf(c -> c.with("coordinate", on));
+        if (on) {
+            String key = serverKey;
+            long session = scheduler.session();
+            if (client.getNetworkHandler() != null && key != null) scheduler.execute(() -> openClaims(key, session));
+        } else {
+            GreetClaims c = greeter.claims();
+            greeter.useClaims(null);
+            closeLater(c, "greeting claims");
+        }
+        sendClientMessage("Greeting coordination with other clients is now: " + (on ? "§aON" : "§cOFF"));
+    }
+
+    // Mode presets replace any cooldowns the profile had
+    private void setMode(Mode mode) {
+        greeter.setMode(mode);
+        String profile = currentProfile();
+        updateConf(c -> c.withProfileValue(profile, "mode", mode.name())
+                .withProfileValue(profile, "perPlayerCooldownSeconds", null)
+                .withProfileValue(profile, "globalCooldownSeconds", null));
+    }
+
+    private void setMetrics(boolean on) {
+        greeter.metrics().setEnabled(on);
+        updateConf(c -> c.with("metrics", on));
+        sendClientMessage("Metrics are now: " + (on ? "§aON" : "§cOFF"));
+    }
+
+    // Runs on the scheduler thread
+    private void dumpMetrics() {
+        if (!greeter.metrics().isEnabled()) return;
+        try {
+            Files.createDirectories(metricsFile.getParent());
+            greeter.metrics().dump(metricsFile, 1024 * 1024L, System.currentTimeMillis());
+        } catch (IOException e) {
+            LOGGER.error("[Welcomer] Failed to write metrics", e);
+        }
+    }
+
+    // Outbox sink, runs on the client thread
+    private void sendChat(String msg) {
+        if (client.player != null && client.player.networkHandler != null) {
+            client.player.networkHandler.sendChatMessage(msg);
+            if (DebugLog.isEnabled()) logDebug("Sent: {} | Messages left in queue: {}", msg, greeter.messageQueueSize());
+        }
+    }
+
     private void sendClientMessage(String text) {
         client.execute(() -> {
             if (client.player != null) client.player.sendMessage(Text.literal("§b[Welcomer] §r" + text));
         });
     }
 
-    private void logDebug(String s) {
-        if (DEBUG) LOGGER.info("[DEBUG] " + s);
+    // Parameterised so nothing is built while debug logging is off
+    private static void logDebug(String msg) {
+        DebugLog.log(msg);
+    }
+
+    private static void logDebug(String format, Object arg) {
+        DebugLog.log(format, arg);
+    }
+
+    private static void logDebug(String format, Object arg1, Object arg2) {
+        DebugLog.log(format, arg1, arg2);
     }
 }
@@ -0,0 +1,449 @@
+package com.sq3rrr.welcomer.config;
+
+import com.sq3rrr.welcomer.DebugLog;
+import com.sq3rrr.welcomer.WelcomerMod;
+import com.sq3rrr.welcomer.detect.FeedbackPatterns;
+import com.sq3rrr.welcomer.detect.JoinDetector;
+import com.sq3rrr.welcomer.detect.JoinFormat;
+import com.sq3rrr.welcomer.greet.GreetingTemplate;
+import com.sq3rrr.welcomer.ignore.IgnoreRule;
+import com.sq3rrr.welcomer.ignore.IgnoreRules;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.UnaryOperator;
+
+/**
+ * The line based config files in config/ and how to parse them.
+ *
+ * All reads and writes go through the ConfigStore. The load methods are safe to call
+ * from any thread (the file watcher reparses off the client thread); they only return
+ * values and never touch greeter state. Missing files get a commented template.
+ */
+public final class ConfigFiles {
+
+    public static final List<String> DEFAULT_JOIN_FORMATS = List.of("{player} joined the game");
+    public static final List<String> DEFAULT_LEAVE_FORMATS = List.of("{player} left the game");
+
+    // Anti-spam warnings and mutes as common plugins word them
+    public static final List<String> DEFAULT_FEEDBACK = List.of(
+            "sending messages too fast",
+            "you are sending too many messages",
+            "please wait before",
+            "slow down",
+            "you are muted",
+            "you have been muted",
+            "kicked for spamming",
+            "regex:wait \\d+ seconds? before"
+    );
+
+    public static final List<String> DEFAULT_MESSAGES = List.of(
+            "%s welcome!",
+            "Hey %s, nice to see you!",
+            "Welcome %s!"
+    );
+
+    // For players joining the server for the first time (as far as the seen-players filter knows)
+    public static final List<String> DEFAULT_FIRST_JOIN_MESSAGES = List.of(
+            "Welcome to the server, {player}!",
+            "First time here, {player}? Welcome!"
+    );
+
+    public static final List<String> DEFAULT_SELF_MESSAGES = List.of(
+            "Hello everyone!",
+            "Hope you're all having a great time!",
+            "Happy to be here with you guys!",
+            "Let's have a fun block game session!",
+            "Greetings from me!",
+            "wow I'm here!",
+            "I arrived!",
+            "I m here!",
+            "I made it!",
+            "wow I joined",
+            "There I am.",
+            "Oh, look, it's me!"
+    );
+
+    private final ConfigStore store;
+    private final Path dir;
+    private final Path messagesFile;
+    private final Path ignoreFile;
+    private final Path selfMessagesFile;
+    private final Path firstJoinFile;
+    private final Path joinFormatsFile;
+    private final Path leaveFormatsFile;
+    private final Path feedbackFile;
+    private final Path configFile;
+    private final Path legacySettingsFile;
+
+    public ConfigFiles(Path configDir, ConfigStore store) {
+        this.store = store;
+        this.dir = configDir;
+        this.messagesFile = configDir.resolve("welcomer_messages.txt");
+        this.ignoreFile = configDir.resolve("welcomer_ignore.txt");
+        this.selfMessagesFile = configDir.resolve("welcomer_selfmessages.txt");
+        this.firstJoinFile = configDir.resolve("welcomer_firstjoin.txt");
+        this.joinFormatsFile = configDir.resolve("welcomer_joinformats.txt");
+        this.leaveFormatsFile = configDir.resolve("welcomer_leaveformats.txt");
+        this.feedbackFile = configDir.resolve("welcomer_feedback.txt");
+        this.configFile = configDir.resolve("welcomer.conf");
+        this.legacySettingsFile = configDir.resolve("welcomer.properties");
+    }
+
+    public Path dir() {
+        return dir;
+    }
+
+    public Path messagesFile() {
+        return messagesFile;
+    }
+
+    public Path ignoreFile() {
+        return ignoreFile;
+    }
+
+    public Path selfMessagesFile() {
+        return selfMessagesFile;
+    }
+
+    public Path firstJoinFile() {
+        return firstJoinFile;
+    }
+
+    public Path joinFormatsFile() {
+        return joinFormatsFile;
+    }
+
+    public Path leaveFormatsFile() {
+        return leaveFormatsFile;
+    }
+
+    public Path feedbackFile() {
+        return feedbackFile;
+    }
+
+    public Path configFile() {
+        return configFile;
+    }
+
+    // ----------------------------
+    // LOADING
+    // ----------------------------
+
+    /**
+     * welcomer.conf, migrated from welcomer.properties the first time.
+     */
+    public WelcomerConfig loadConfig() {
+        try {
+            if (store.exists(configFile)) return WelcomerConfig.parse(store.read(configFile));
+
+            boolean legacy = store.exists(legacySettingsFile);
+            WelcomerConfig config = legacy ? WelcomerConfig.parse(store.read(legacySettingsFile)) : WelcomerConfig.empty();
+            store.replace(configFile, config.toLines());
+            if (legacy) {
+                store.replace(legacySettingsFile, List.of("# Moved to welcomer.conf, this file is no longer read"));
+                WelcomerMod.LOGGER.info("[Welcomer] Migrated welcomer.properties to welcomer.conf");
+            }
+            return config;
+        } catch (IOException e) {
+            WelcomerMod.LOGGER.error("[Welcomer] Failed to load welcomer.conf", e);
+            return WelcomerConfig.empty();
+        }
+    }
+
+    /**
+     * Reloads every file on top of the given snapshot (mode and cooldowns are kept).
+     */
+    public ConfigSnapshot loadAll(ConfigSnapshot base) {
+        return base.toBuilder()
+                .joinDetector(loadJoinDetector())
+                .leaveDetector(loadLeaveDetector())
+                .messages(loadMessages())
+                .firstJoinMessages(loadFirstJoinMessages())
+                .selfMessages(loadSelfMessages())
+                .ignore(loadIgnore())
+                .feedback(loadFeedback())
+                .build();
+    }
+
+    /**
+     * Parses just the changed files (used by the file watcher) and returns the update to
+     * apply to the current snapshot. Parts whose content did not actually change are left
+     * alone, so our own write-behind saves echoing back through the watcher are no-ops.
+     */
+    public UnaryOperator<ConfigSnapshot> reload(Set<Path> changed) {
+        UnaryOperator<ConfigSnapshot> update = UnaryOperator.identity();
+        if (changed.contains(joinFormatsFile)) {
+            JoinDetector detector = loadJoinDetector();
+            update = then(update, c -> sources(c.joinDetector()).equals(sources(detector)) ? c : c.withJoinDetector(detector));
+        }
+        if (changed.contains(leaveFormatsFile)) {
+            JoinDetector detector = loadLeaveDetector();
+            update = then(update, c -> sources(c.leaveDetector()).equals(sources(detector)) ? c : c.withLeaveDetector(detector));
+        }
+        if (changed.contains(messagesFile)) {
+            List<GreetingTemplate> messages = loadMessages();
+            update = then(update, c -> c.messages().equals(messages) ? c : c.withMessages(messages));
+        }
+        if (changed.contains(firstJoinFile)) {
+            List<GreetingTemplate> firstJoin = loadFirstJoinMessages();
+            update = then(update, c -> c.firstJoinMessages().equals(firstJoin) ? c : c.withFirstJoinMessages(firstJoin));
+        }
+        if (changed.contains(selfMessagesFile)) {
+            List<GreetingTemplate> selfMessages = loadSelfMessages();
+            update = then(update, c -> c.selfMessages().equals(selfMessages) ? c : c.withSelfMessages(selfMessages));
+        }
+        if (changed.contains(ignoreFile)) {
+            IgnoreRules ignore = loadIgnore();
+            update = then(update, c -> c.ignore().equals(ignore) ? c : c.withIgnore(ignore));
+        }
+        if (changed.contains(feedbackFile)) {
+            FeedbackPatterns feedback = loadFeedback();
+            update = then(update, c -> c.feedback().equals(feedback) ? c : c.withFeedback(feedback));
+        }
+        return update;
+    }
+
+    public Set<Path> watchedFiles() {
+        return Set.of(messagesFile, firstJoinFile, ignoreFile, selfMessagesFile, joinFormatsFile, leaveFormatsFile, feedbackFile);
+    }
+
+    private static UnaryOperator<ConfigSnapshot> then(UnaryOperator<ConfigSnapshot> first, UnaryOperator<ConfigSnapshot> next) {
+        return c -> next.apply(first.apply(c));
+    }
+
+    private static List<String> sources(JoinDetector detector) {
+        List<String> out = new ArrayList<>(detector.size());
+        for (JoinFormat f : detector.formats()) out.add(f.source());
+        return out;
+    }
+
+    public JoinDetector loadJoinDetector() {
+        return loadFormats(joinFormatsFile, "join", DEFAULT_JOIN_FORMATS, "[+] {player}");
+    }
+
+    /**
+     * Leave formats; a leave followed by a quick rejoin is a reconnect and isn't greeted again.
+     */
+    public JoinDetector loadLeaveDetector() {
+        return loadFormats(leaveFormatsFile, "leave", DEFAULT_LEAVE_FORMATS, "[-] {player}");
+    }
+
+    private JoinDetector loadFormats(Path file, String what, List<String> defaults, String example) {
+        List<JoinFormat> formats = new ArrayList<>();
+        try {
+            if (store.exists(file)) {
+                for (String l : store.read(file)) {
+                    String t = l.trim();
+                    if (t.isEmpty() || t.startsWith("#")) continue;
+                    try {
+                        formats.add(JoinFormat.parse(t));
+                    } catch (IllegalArgumentException e) {
+                        WelcomerMod.LOGGER.warn("[Welcomer] Skipping {} format '{}': {}", what, t, e.getMessage());
+                    }
+                }
+            } else {
+                List<String> template = new ArrayList<>(List.of(
+                        "# Welcomer " + what + " formats, one per line",
+                        "# {player} marks the player name, everything else must match exactly",
+                        "# Prefix a line with regex: to use a regular expression (group 1 or (?<player>...) is the name)",
+                        "# Example: " + example
+                ));
+                template.addAll(defaults);
+                store.writeIfAbsent(file, template);
+            }
+        } catch (IOException e) {
+            WelcomerMod.LOGGER.error("[Welcomer] Failed to load " + what + " formats", e);
+        }
+
+        if (formats.isEmpty()) {
+            for (String f : defaults) formats.add(JoinFormat.parse(f));
+        }
+        DebugLog.log("Loaded {} {} formats.", formats.size(), what);
+        return new JoinDetector(formats);
+    }
+
+    public List<GreetingTemplate> loadMessages() {
+        List<GreetingTemplate> welcomeMessages = new ArrayList<>();
+        try {
+            if (store.exists(messagesFile)) {
+                welcomeMessages.addAll(readTemplates(messagesFile, "welcome message"));
+            } else {
+                // Fallback defaults
+                welcomeMessages.addAll(GreetingTemplate.compileAll(DEFAULT_MESSAGES));
+                List<String> template = new ArrayList<>(List.of(
+                        "# Welcomer messages, one per line",
+                        "# {player} (or %s) is replaced with the player name, otherwise it is added at the end",
+                        "# Also available: {time}, {online}, {joinsToday}. Use %% for a literal %"
+                ));
+                template.addAll(DEFAULT_MESSAGES);
+                store.writeIfAbsent(messagesFile, template);
+            }
+        } catch (IOException e) {
+            WelcomerMod.LOGGER.error("[Welcomer] Failed to load messages", e);
+        }
+
+        DebugLog.log("Loaded {} welcome messages from file.", welcomeMessages.size());
+        return welcomeMessages;
+    }
+
+    /**
+     * Greetings for first-time players. An empty file means they get the normal messages.
+     */
+    public List<GreetingTemplate> loadFirstJoinMessages() {
+        List<GreetingTemplate> firstJoin = new ArrayList<>();
+        try {
+            if (store.exists(firstJoinFile)) {
+                firstJoin.addAll(readTemplates(firstJoinFile, "first-join message"));
+            } else {
+                firstJoin.addAll(GreetingTemplate.compileAll(DEFAULT_FIRST_JOIN_MESSAGES));
+                List<String> template = new ArrayList<>(List.of(
+                        "# Messages for players joining this server for the first time, same placeholders as welcomer_messages.txt",
+                        "# Players already seen (or on the rare false match) get the normal messages; empty the file to always use those"
+                ));
+                template.addAll(DEFAULT_FIRST_JOIN_MESSAGES);
+                store.writeIfAbsent(firstJoinFile, template);
+            }
+        } catch (IOException e) {
+            WelcomerMod.LOGGER.error("[Welcomer] Failed to load first-join messages", e);
+        }
+
+        DebugLog.log("Loaded {} first-join messages.", firstJoin.size());
+        return firstJoin;
+    }
+
+    /**
+     * Custom self-greet messages, or the built-in ones if the file is missing or empty.
+     */
+    public List<GreetingTemplate> loadSelfMessages() {
+        try {
+            if (store.exists(selfMessagesFile)) {
+                List<GreetingTemplate> tmp = readTemplates(selfMessagesFile, "self-greet message");
+                if (!tmp.isEmpty()) {
+                    DebugLog.log("Loaded {} custom self-greet messages.", tmp.size());
+                    return tmp;
+                }
+            }
+
+            // Write template file if missing
+            List<String> template = new ArrayList<>(List.of(
+                    "# Self-greet messages",
+                    "# One message per line, {player} is your own name, {time}, {online} and {joinsToday} work too",
+                    "# If this file is empty, fallback messages will be used."
+            ));
+            template.addAll(DEFAULT_SELF_MESSAGES);
+            store.writeIfAbsent(selfMessagesFile, template);
+        } catch (IOException e) {
+            WelcomerMod.LOGGER.error("[Welcomer] Failed to load self-greet messages", e);
+        }
+
+        // Fallback to built-in defaults
+        DebugLog.log("Using fallback self-greet messages. Count: {}", DEFAULT_SELF_MESSAGES.size());
+        return GreetingTemplate.compileAll(DEFAULT_SELF_MESSAGES);
+    }
+
+    // Compiles every message line; bad ones are reported and skipped so one typo doesn't lose the file
+    private List<GreetingTemplate> readTemplates(Path file, String what) throws IOException {
+        List<GreetingTemplate> out = new ArrayList<>();
+        for (String l : store.read(file)) {
+            String t = l.trim();
+            if (t.isEmpty() || t.startsWith("#")) continue;
+            try {
+                out.add(GreetingTemplate.compile(t));
+            } catch (IllegalArgumentException e) {
+                WelcomerMod.LOGGER.warn("[Welcomer] Skipping {} '{}': {}", what, t, e.getMessage());
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Ignore rules; plain names from older versions load as case-insensitive exact rules.
+     */
+    public IgnoreRules loadIgnore() {
+        List<IgnoreRule> rules = new ArrayList<>();
+        try {
+            for (String l : store.read(ignoreFile)) {
+                String s = l.trim();
+                if (s.isEmpty() || s.startsWith("#")) continue;
+                try {
+                    rules.add(IgnoreRule.parse(s));
+                } catch (IllegalArgumentException e) {
+                    WelcomerMod.LOGGER.warn("[Welcomer] Skipping ignore rule '{}': {}", s, e.getMessage());
+                }
+            }
+            store.writeIfAbsent(ignoreFile, ignoreFileLines(List.of()));
+        } catch (IOException e) {
+            WelcomerMod.LOGGER.error("[Welcomer] Failed to load ignore list", e);
+        }
+        IgnoreRules ignore = new IgnoreRules(rules);
+        DebugLog.log("Loaded {} ignore rules from file.", ignore.size());
+        return ignore;
+    }
+
+    /**
+     * Server warnings that pause greetings. An empty file turns the circuit breaker off.
+     */
+    public FeedbackPatterns loadFeedback() {
+        List<String> lines = new ArrayList<>();
+        try {
+            if (store.exists(feedbackFile)) {
+                for (String l : store.read(feedbackFile)) {
+                    String t = l.trim();
+                    if (t.isEmpty() || t.startsWith("#")) continue;
+                    try {
+                        FeedbackPatterns.validate(t);
+                        lines.add(t);
+                    } catch (IllegalArgumentException e) {
+                        WelcomerMod.LOGGER.warn("[Welcomer] Skipping feedback pattern '{}': {}", t, e.getMessage());
+                    }
+                }
+            } else {
+                lines.addAll(DEFAULT_FEEDBACK);
+                List<String> template = new ArrayList<>(List.of(
+                        "# Server messages that mean we're chatting too much; greetings pause (and back off) when one shows up",
+                        "# right after we sent something. Plain text is found anywhere in the line, not case-sensitive",
+                        "# Prefix a line with regex: to use a regular expression"
+                ));
+                template.addAll(DEFAULT_FEEDBACK);
+                store.writeIfAbsent(feedbackFile, template);
+            }
+        } catch (IOException e) {
+            WelcomerMod.LOGGER.error("[Welcomer] Failed to load feedback patterns", e);
+        }
+        DebugLog.log("Loaded {} feedback patterns.", lines.size());
+        return new FeedbackPatterns(lines);
+    }
+
+    private static List<String> ignoreFileLines(List<String> rules) {
+        List<String> lines = new ArrayList<>(List.of(
+                "# Welcomer ignore list, one rule per line, not case-sensitive",
+                "# Steve = that name, Bot_* = names starting with Bot_, *_alt = names ending in _alt",
+                "# Other wildcards (*bot*) and regex:<expression> lines match the whole name"
+        ));
+        lines.addAll(rules);
+        return lines;
+    }
+
+    // ----------------------------
+    // SAVING (write-behind)
+    // ----------------------------
+    public void saveConfig(WelcomerConfig config) {
+        store.replace(configFile, config.toLines());
+        DebugLog.log("welcomer.conf queued for saving.");
+    }
+
+    public void saveIgnore(IgnoreRules ignore) {
+        store.replace(ignoreFile, ignoreFileLines(ignore.sources()));
+        DebugLog.log("Ignore list queued for saving with {} rules.", ignore.size());
+    }
+
+    public void appendMessage(String message) {
+        store.append(messagesFile, message);
+    }
+
+    public void appendSelfMessage(String message) {
+        store.append(selfMessagesFile, message);
+    }
+}
@@ -0,0 +1,188 @@
+package com.sq3rrr.welcomer.config;
+
+import com.sq3rrr.welcomer.detect.FeedbackPatterns;
+import com.sq3rrr.welcomer.detect.JoinDetector;
+import com.sq3rrr.welcomer.greet.GreetingTemplate;
+import com.sq3rrr.welcomer.greet.Mode;
+import com.sq3rrr.welcomer.ignore.IgnoreRules;
+
+import java.util.List;
+
+/**
+ * Everything the greeting hot path reads from config, frozen in one immutable object.
+ *
+ * Reloads and commands never modify a snapshot; they build a new one with the with*()
+ * methods (or toBuilder() for several fields) and publish it with a single reference swap. Readers grab the current snapshot
+ * once per chat line and always see a complete, consistent config.
+ */
+public record ConfigSnapshot(
+        JoinDetector joinDetector,
+        JoinDetector serverJoinDetector,
+        JoinDetector leaveDetector,
+        List<GreetingTemplate> messages,
+        List<GreetingTemplate> firstJoinMessages,
+        List<GreetingTemplate> selfMessages,
+        IgnoreRules ignore,
+        FeedbackPatterns feedback,
+        Mode mode,
+        long perPlayerCooldown,
+        long globalCooldown
+) {
+
+    public ConfigSnapshot {
+        messages = List.copyOf(messages);
+        firstJoinMessages = List.copyOf(firstJoinMessages);
+        selfMessages = List.copyOf(selfMessages);
+    }
+
+    /**
+     * Empty config in DEFAULT mode, used until the files are loaded.
+     */
+    public static ConfigSnapshot of(JoinDetector joinDetector) {
+        return new ConfigSnapshot(joinDetector, new JoinDetector(List.of()), new JoinDetector(List.of()), List.of(), List.of(), List.of(), IgnoreRules.EMPTY, FeedbackPatterns.EMPTY,
+                Mode.DEFAULT, Mode.DEFAULT.perPlayerCooldown, Mode.DEFAULT.globalCooldown);
+    }
+
+    public ConfigSnapshot withJoinDetector(JoinDetector joinDetector) {
+        return toBuilder().joinDetector(joinDetector).build();
+    }
+
+    /**
+     * Extra join formats from the current server's profile, tried after the file's.
+     */
+    public ConfigSnapshot withServerJoinDetector(JoinDetector serverJoinDetector) {
+        return toBuilder().serverJoinDetector(serverJoinDetector).build();
+    }
+
+    public ConfigSnapshot withLeaveDetector(JoinDetector leaveDetector) {
+        return toBuilder().leaveDetector(leaveDetector).build();
+    }
+
+    public ConfigSnapshot withMessages(List<GreetingTemplate> messages) {
+        return toBuilder().messages(messages).build();
+    }
+
+    public ConfigSnapshot withFirstJoinMessages(List<GreetingTemplate> firstJoinMessages) {
+        return toBuilder().firstJoinMessages(firstJoinMessages).build();
+    }
+
+    public ConfigSnapshot withSelfMessages(List<GreetingTemplate> selfMessages) {
+        return toBuilder().selfMessages(selfMessages).build();
+    }
+
+    public ConfigSnapshot withIgnore(IgnoreRules ignore) {
+        return toBuilder().ignore(ignore).build();
+    }
+
+    public ConfigSnapshot withFeedback(FeedbackPatterns feedback) {
+        return toBuilder().feedback(feedback).build();
+    }
+
+    /**
+     * Switches mode and applies its cooldown presets.
+     */
+    public ConfigSnapshot withMode(Mode mode) {
+        return toBuilder().mode(mode).cooldowns(mode.perPlayerCooldown, mode.globalCooldown).build();
+    }
+
+    /**
+     * Overrides the mode's cooldown presets (server profiles).
+     */
+    public ConfigSnapshot withCooldowns(long perPlayerCooldown, long globalCooldown) {
+        return toBuilder().cooldowns(perPlayerCooldown, globalCooldown).build();
+    }
+
+    /**
+     * A builder starting from this snapshot, for changing several fields with one copy.
+     */
+    public Builder toBuilder() {
+        return new Builder(this);
+    }
+
+    public static final class Builder {
+        private JoinDetector joinDetector;
+        private JoinDetector serverJoinDetector;
+        private JoinDetector leaveDetector;
+        private List<GreetingTemplate> messages;
+        private List<GreetingTemplate> firstJoinMessages;
+        private List<GreetingTemplate> selfMessages;
+        private IgnoreRules ignore;
+        private FeedbackPatterns feedback;
+        private Mode mode;
+        private long perPlayerCooldown;
+        private long globalCooldown;
+
+        private Builder(ConfigSnapshot s) {
+            joinDetector = s.joinDetector;
+            serverJoinDetector = s.serverJoinDetector;
+            leaveDetector = s.leaveDetector;
+            messages = s.messages;
+            firstJoinMessages = s.firstJoinMessages;
+            selfMessages = s.selfMessages;
+            ignore = s.ignore;
+            feedback = s.feedback;
+            mode = s.mode;
+            perPlayerCooldown = s.perPlayerCooldown;
+            globalCooldown = s.globalCooldown;
+        }
+
+        public Builder joinDetector(JoinDetector joinDetector) {
+            this.joinDetector = joinDetector;
+            return this;
+        }
+
+        public Builder serverJoinDetector(JoinDetector serverJoinDetector) {
+            this.serverJoinDetector = serverJoinDetector;
+            return this;
+        }
+
+        public Builder leaveDetector(JoinDetector leaveDetector) {
+            this.leaveDetector = leaveDetector;
+            return this;
+        }
+
+        public Builder messages(List<GreetingTemplate> messages) {
+            this.messages = messages;
+            return this;
+        }
+
+        public Builder firstJoinMessages(List<GreetingTemplate> firstJoinMessages) {
+            this.firstJoinMessages = firstJoinMessages;
+            return this;
+        }
+
+        public Builder selfMessages(List<GreetingTemplate> selfMessages) {
+            this.selfMessages = selfMessages;
+            return this;
+        }
+
+        public Builder ignore(IgnoreRules ignore) {
+            this.ignore = ignore;
+            return this;
+        }
+
+        public Builder feedback(FeedbackPatterns feedback) {
+            this.feedback = feedback;
+            return this;
+        }
+
+        /**
+         * Sets the mode only; call cooldowns() too, or use withMode() for the presets.
+         */
+        public Builder mode(Mode mode) {
+            this.mode = mode;
+            return this;
+        }
+
+        public Builder cooldowns(long perPlayerCooldown, long globalCooldown) {
+            this.perPlayerCooldown = perPlayerCooldown;
+            this.globalCooldown = globalCooldown;
+            return this;
+        }
+
+        public ConfigSnapshot build() {
+            return new ConfigSnapshot(joinDetector, serverJoinDetector, leaveDetector, messages, firstJoinMessages, selfMessages,
+                    ignore, feedback, mode, perPlayerCooldown, globalCooldown);
+        }
+    }
+}
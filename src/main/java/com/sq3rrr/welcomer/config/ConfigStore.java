@@ -0,0 +1,222 @@
+package com.sq3rrr.welcomer.config;
+
+import com.sq3rrr.welcomer.WelcomerMod;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Write-behind store for the line based config files (messages, self messages, ignore list, ...).
+ *
+ * - Changes update an in-memory copy right away and mark the file dirty.
+ * - Appended lines are only queued; the io thread reads the file and adds them when it
+ *   writes, so callers never touch the disk and hand edits made in between are kept. If
+ *   that read fails the lines stay queued: a file that can't be read is never replaced.
+ * - A background "welcomer-io" thread writes dirty files after a short debounce, so a
+ *   burst of /welcomer ignore calls costs one write instead of one per command.
+ * - Every write goes to a temp file first and is then moved over the original,
+ *   so a crash mid-write leaves either the old or the new file, never half of one.
+ * - read() returns the pending copy while a file is dirty and the file on disk (plus any
+ *   queued lines) otherwise, so reload commands still pick up hand edits.
+ */
+public final class ConfigStore implements AutoCloseable {
+
+    private final long debounceMs;
+    // Guarded by this; a file is in at most one of them (appends to a dirty file go into its copy)
+    private final Map<Path, List<String>> dirty = new HashMap<>();    // whole files still waiting to be written
+    private final Map<Path, List<String>> appended = new HashMap<>(); // lines to add to the file on disk
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+
+    private final ScheduledExecutorService io = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "welcomer-io");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public ConfigStore(long debounceMs) {
+        this.debounceMs = debounceMs;
+    }
+
+    // ----------------------------
+    // READS
+    // ----------------------------
+    public boolean exists(Path file) {
+        synchronized (this) {
+            if (dirty.containsKey(file) || appended.containsKey(file)) return true;
+        }
+        return Files.exists(file);
+    }
+
+    /**
+     * Returns the file's lines (untrimmed), or an empty list if it does not exist.
+     */
+    public List<String> read(Path file) throws IOException {
+        List<String> pending;
+        List<String> queued;
+        synchronized (this) {
+            pending = dirty.get(file);
+            queued = appended.get(file);
+        }
+        if (pending != null) return pending;
+
+        List<String> lines = Files.exists(file) ? Files.readAllLines(file, StandardCharsets.UTF_8) : List.of();
+        return queued == null ? List.copyOf(lines) : concat(lines, queued);
+    }
+
+    // ----------------------------
+    // WRITES (all asynchronous)
+    // ----------------------------
+    public void replace(Path file, List<String> lines) {
+        markDirty(file, List.copyOf(lines));
+    }
+
+    /**
+     * Adds a line to the pending copy, or queues it for the io thread to add to the file
+     * as it is on disk at write time. Never reads the file on the calling thread.
+     */
+    public void append(Path file, String line) {
+        synchronized (this) {
+            List<String> pending = dirty.get(file);
+            if (pending != null) dirty.put(file, concat(pending, List.of(line)));
+            else appended.put(file, concat(appended.getOrDefault(file, List.of()), List.of(line)));
+        }
+        scheduleFlush();
+    }
+
+    /**
+     * Writes a template only if the file is missing (used for first-run defaults).
+     */
+    public void writeIfAbsent(Path file, List<String> lines) {
+        if (!exists(file)) replace(file, lines);
+    }
+
+    /**
+     * Writes everything pending now, without waiting (e.g. on disconnect).
+     */
+    public void flushSoon() {
+        synchronized (this) {
+            if (dirty.isEmpty() && appended.isEmpty()) return;
+        }
+        io.execute(this::writeDirty);
+    }
+
+    /**
+     * Writes everything pending and waits for it (e.g. on shutdown).
+     */
+    public void flush() {
+        try {
+            io.submit(this::writeDirty).get(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException | RejectedExecutionException e) {
+            WelcomerMod.LOGGER.error("[Welcomer] Failed to flush config files", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        flush();
+        io.shutdown();
+    }
+
+    // ----------------------------
+    // INTERNALS
+    // ----------------------------
+    private void markDirty(Path file, List<String> lines) {
+        synchronized (this) {
+            // The new contents were read through read(), which already included the queued lines
+            dirty.put(file, lines);
+            appended.remove(file);
+        }
+        scheduleFlush();
+    }
+
+    private void scheduleFlush() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            io.schedule(() -> {
+                flushScheduled.set(false);
+                writeDirty();
+            }, debounceMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Runs on the io thread only
+    private void writeDirty() {
+        Map<Path, List<String>> files;
+        Map<Path, List<String>> appends;
+        synchronized (this) {
+            files = new HashMap<>(dirty);
+            appends = new HashMap<>(appended);
+        }
+
+        boolean failed = false;
+        for (Map.Entry<Path, List<String>> e : files.entrySet()) {
+            Path file = e.getKey();
+            List<String> lines = e.getValue();
+            try {
+                writeAtomically(file, lines);
+            } catch (IOException ex) {
+                WelcomerMod.LOGGER.error("[Welcomer] Failed to write {}", file.getFileName(), ex);
+                failed = true;
+                continue;
+            }
+            // Only clears if nothing newer was queued while writing; otherwise the next pass writes it
+            synchronized (this) {
+                dirty.remove(file, lines);
+            }
+        }
+
+        for (Map.Entry<Path, List<String>> e : appends.entrySet()) {
+            Path file = e.getKey();
+            List<String> lines = e.getValue();
+            try {
+                List<String> current = Files.exists(file) ? Files.readAllLines(file, StandardCharsets.UTF_8) : List.of();
+                writeAtomically(file, concat(current, lines));
+            } catch (IOException ex) {
+                WelcomerMod.LOGGER.error("[Welcomer] Failed to append to {}, keeping {} line(s) for the next try", file.getFileName(), lines.size(), ex);
+                failed = true;
+                continue;
+            }
+            synchronized (this) {
+                // Lines appended while writing are kept for the next pass
+                List<String> now = appended.get(file);
+                if (now != null && now.size() >= lines.size() && now.subList(0, lines.size()).equals(lines)) {
+                    if (now.size() == lines.size()) appended.remove(file);
+                    else appended.put(file, List.copyOf(now.subList(lines.size(), now.size())));
+                }
+            }
+        }
+        // Failed files stay queued; try them again after another debounce
+        if (failed) scheduleFlush();
+    }
+
+    private static List<String> concat(List<String> a, List<String> b) {
+        List<String> out = new ArrayList<>(a.size() + b.size());
+        out.addAll(a);
+        out.addAll(b);
+        return List.copyOf(out);
+    }
+
+    private static void writeAtomically(Path file, List<String> lines) throws IOException {
+        Path dir = file.toAbsolutePath().getParent();
+        if (dir != null && !Files.exists(dir)) Files.createDirectories(dir);
+
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.write(tmp, lines, StandardCharsets.UTF_8);
+        try {
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
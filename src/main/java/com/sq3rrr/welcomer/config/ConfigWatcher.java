@@ -0,0 +1,90 @@
+package com.sq3rrr.welcomer.config;
+
+import com.sq3rrr.welcomer.WelcomerMod;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Watches the config directory and reports which of our files changed.
+ *
+ * Runs on its own "welcomer-watcher" daemon thread. Editors tend to fire several events
+ * per save (truncate, write, rename), so events are collected until the directory has
+ * been quiet for {@code debounceMs} and then handed over as one batch.
+ */
+public final class ConfigWatcher implements AutoCloseable {
+
+    private final Path dir;
+    private final Set<Path> files;
+    private final long debounceMs;
+    private final Consumer<Set<Path>> onChange;
+    private WatchService watchService;
+    private Thread thread;
+
+    public ConfigWatcher(Path dir, Set<Path> files, long debounceMs, Consumer<Set<Path>> onChange) {
+        this.dir = dir;
+        this.files = Set.copyOf(files);
+        this.debounceMs = debounceMs;
+        this.onChange = onChange;
+    }
+
+    public void start() throws IOException {
+        if (!Files.exists(dir)) Files.createDirectories(dir);
+        watchService = dir.getFileSystem().newWatchService();
+        dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+        thread = new Thread(this::run, "welcomer-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                Set<Path> changed = new HashSet<>();
+                collect(watchService.take(), changed);
+
+                // Keep collecting until the burst of events is over
+                WatchKey more;
+                while ((more = watchService.poll(debounceMs, TimeUnit.MILLISECONDS)) != null) {
+                    collect(more, changed);
+                }
+
+                if (!changed.isEmpty()) {
+                    try {
+                        onChange.accept(changed);
+                    } catch (RuntimeException e) {
+                        WelcomerMod.LOGGER.error("[Welcomer] Failed to apply config change", e);
+                    }
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // shutting down
+        }
+    }
+
+    private void collect(WatchKey key, Set<Path> changed) {
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                changed.addAll(files);
+                continue;
+            }
+            Path file = dir.resolve((Path) event.context());
+            if (files.contains(file)) changed.add(file);
+        }
+        key.reset();
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (watchService != null) watchService.close();
+        } catch (IOException e) {
+            WelcomerMod.LOGGER.error("[Welcomer] Failed to stop config watcher", e);
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package com.sq3rrr.welcomer.config;
+
+import com.sq3rrr.welcomer.WelcomerMod;
+import com.sq3rrr.welcomer.detect.JoinDetector;
+import com.sq3rrr.welcomer.detect.JoinFormat;
+import com.sq3rrr.welcomer.greet.Greeter;
+import com.sq3rrr.welcomer.greet.Mode;
+
+import java.util.*;
+
+/**
+ * welcomer.conf: global settings plus a [default] profile and one [server <key>] profile
+ * per server, parsed once into an immutable object.
+ *
+ * A server section only holds the keys that differ from [default]; every profile is
+ * resolved against [default] when the file is parsed, so switching servers is one map
+ * lookup. Changes go through the with*() methods, which return this instance when the
+ * value is already set, so callers save only when something actually changed.
+ *
+ * Older versions kept the global settings in welcomer.properties; that file parses as a
+ * version 0 config without sections and is migrated by ConfigFiles.
+ */
+public final class WelcomerConfig {
+
+    public static final int VERSION = 1;
+    public static final String DEFAULT_PROFILE = "default";
+
+    /**
+     * Everything that can differ per server. Cooldowns not set in the file are the mode's
+     * presets; joinDetector holds the profile's extra join formats (usually none).
+     */
+    public record Profile(boolean enabled, boolean selfGreet, Mode mode, long perPlayerCooldown, long globalCooldown,
+                          long selfGreetDelay, long selfCooldown, JoinDetector joinDetector) {
+    }
+
+    // Keys written to a fresh [default] profile; the cooldowns are left out so the mode presets apply
+    private static final Map<String, String> PROFILE_DEFAULTS = defaults();
+
+    private static Map<String, String> defaults() {
+        Map<String, String> m = new LinkedHashMap<>();
+        m.put("enabled", "false");
+        m.put("selfGreet", "false");
+        m.put("mode", Mode.DEFAULT.name());
+        m.put("selfGreetDelaySeconds", "2");
+        m.put("selfCooldownSeconds", "300");
+        return Collections.unmodifiableMap(m);
+    }
+
+    // joinFormat may repeat; its values are kept joined by '\n' and written back one per line
+    private static final String JOIN_FORMAT = "joinFormat";
+
+    private final int version;
+    private final Map<String, String> settings;
+    private final Map<String, Map<String, String>> profiles;
+    private final Map<String, Profile> resolved = new HashMap<>();
+    private final Profile defaultProfile;
+
+    private WelcomerConfig(int version, Map<String, String> settings, Map<String, Map<String, String>> profiles) {
+        this.version = version;
+        this.settings = settings;
+        this.profiles = profiles;
+
+        Map<String, String> base = new LinkedHashMap<>(PROFILE_DEFAULTS);
+        base.putAll(profiles.getOrDefault(DEFAULT_PROFILE, Map.of()));
+        this.defaultProfile = resolve(DEFAULT_PROFILE, base);
+        for (Map.Entry<String, Map<String, String>> e : profiles.entrySet()) {
+            if (e.getKey().equals(DEFAULT_PROFILE)) continue;
+            Map<String, String> merged = new LinkedHashMap<>(base);
+            merged.putAll(e.getValue());
+            resolved.put(e.getKey(), resolve(e.getKey(), merged));
+        }
+    }
+
+    /**
+     * A config with no settings and the default profile.
+     */
+    public static WelcomerConfig empty() {
+        return new WelcomerConfig(VERSION, Map.of(), Map.of(DEFAULT_PROFILE, PROFILE_DEFAULTS));
+    }
+
+    public static WelcomerConfig parse(List<String> lines) {
+        int version = 0;
+        Map<String, String> settings = new LinkedHashMap<>();
+        Map<String, Map<String, String>> profiles = new LinkedHashMap<>();
+        Map<String, String> section = settings;
+
+        for (String l : lines) {
+            String t = l.trim();
+            if (t.isEmpty() || t.startsWith("#")) continue;
+            if (t.startsWith("[") && t.endsWith("]")) {
+                String name = t.substring(1, t.length() - 1).trim();
+                if (name.startsWith("server ")) name = name.substring("server ".length()).trim();
+                section = profiles.computeIfAbsent(name, k -> new LinkedHashMap<>());
+                continue;
+            }
+            int eq = t.indexOf('=');
+            if (eq <= 0) continue;
+            String key = t.substring(0, eq).trim();
+            String value = t.substring(eq + 1).trim();
+            if (section == settings && key.equals("version")) {
+                version = parseInt(value, 0);
+            } else if (key.equals(JOIN_FORMAT)) {
+                section.merge(key, value, (a, b) -> a + "\n" + b);
+            } else {
+                section.put(key, value);
+            }
+        }
+        if (version > VERSION) {
+            WelcomerMod.LOGGER.warn("[Welcomer] welcomer.conf is version {}, this build knows {}; unknown keys are kept", version, VERSION);
+        }
+        profiles.putIfAbsent(DEFAULT_PROFILE, new LinkedHashMap<>(PROFILE_DEFAULTS));
+        return new WelcomerConfig(version, freeze(settings), freezeAll(profiles));
+    }
+
+    public List<String> toLines() {
+        List<String> lines = new ArrayList<>(List.of(
+                "# Welcomer config (saved by /welcomer commands; edit while the game is closed)",
+                "# Global settings first, then [default] and one [server <address>] section per server that only lists what differs.",
+                "# Profile keys: enabled, selfGreet, mode (DEFAULT, CONSTANTIAM, HYPERSAFE, ADAPTIVE), perPlayerCooldownSeconds,",
+                "# globalCooldownSeconds (both default to the mode's, at most " + Greeter.longestCooldown() / 60_000L + " min; in ADAPTIVE the minimum the join rate raises),",
+                "# selfGreetDelaySeconds, selfCooldownSeconds, joinFormat (repeatable)",
+                "version=" + Math.max(version, VERSION)
+        ));
+        appendSection(lines, settings);
+        for (Map.Entry<String, Map<String, String>> e : profiles.entrySet()) {
+            lines.add("");
+            lines.add(e.getKey().equals(DEFAULT_PROFILE) ? "[default]" : "[server " + e.getKey() + "]");
+            appendSection(lines, e.getValue());
+        }
+        return lines;
+    }
+
+    private static void appendSection(List<String> lines, Map<String, String> section) {
+        for (Map.Entry<String, String> e : section.entrySet()) {
+            if (e.getKey().equals(JOIN_FORMAT)) {
+                for (String f : e.getValue().split("\n")) lines.add(JOIN_FORMAT + "=" + f);
+            } else {
+                lines.add(e.getKey() + "=" + e.getValue());
+            }
+        }
+    }
+
+    // ----------------------------
+    // GLOBAL SETTINGS
+    // ----------------------------
+
+    public int version() {
+        return version;
+    }
+
+    public String get(String key, String def) {
+        return settings.getOrDefault(key, def);
+    }
+
+    public boolean getBoolean(String key, boolean def) {
+        String v = settings.get(key);
+        return v == null ? def : Boolean.parseBoolean(v);
+    }
+
+    public long getLong(String key, long def) {
+        String v = settings.get(key);
+        if (v == null) return def;
+        try {
+            return Long.parseLong(v);
+        } catch (NumberFormatException e) {
+            return def;
+        }
+    }
+
+    public double getDouble(String key, double def) {
+        String v = settings.get(key);
+        if (v == null) return def;
+        try {
+            return Double.parseDouble(v);
+        } catch (NumberFormatException e) {
+            return def;
+        }
+    }
+
+    /**
+     * This config with a global setting changed, or this instance if it already had that value.
+     */
+    public WelcomerConfig with(String key, Object value) {
+        String v = String.valueOf(value);
+        if (v.equals(settings.get(key))) return this;
+        Map<String, String> next = new LinkedHashMap<>(settings);
+        next.put(key, v);
+        return new WelcomerConfig(version, Collections.unmodifiableMap(next), profiles);
+    }
+
+    // ----------------------------
+    // PROFILES
+    // ----------------------------
+
+    /**
+     * The resolved profile for a server, [default] if it has none.
+     */
+    public Profile profile(String serverKey) {
+        Profile p = serverKey == null ? null : resolved.get(serverKey);
+        return p != null ? p : defaultProfile;
+    }
+
+    public boolean hasProfile(String serverKey) {
+        return resolved.containsKey(serverKey);
+    }
+
+    /**
+     * Sets a key in a profile (creating it), or returns this instance if the profile already
+     * has that value. A null value removes the key so it falls back to [default].
+     */
+    public WelcomerConfig withProfileValue(String profile, String key, Object value) {
+        Map<String, String> section = profiles.getOrDefault(profile, Map.of());
+        String v = value == null ? null : String.valueOf(value);
+        if (Objects.equals(v, section.get(key))) return this;
+
+        Map<String, String> nextSection = new LinkedHashMap<>(section);
+        if (v == null) nextSection.remove(key);
+        else nextSection.put(key, v);
+        Map<String, Map<String, String>> next = new LinkedHashMap<>(profiles);
+        next.put(profile, Collections.unmodifiableMap(nextSection));
+        return new WelcomerConfig(version, settings, Collections.unmodifiableMap(next));
+    }
+
+    private static Profile resolve(String name, Map<String, String> m) {
+        Mode mode = Mode.DEFAULT;
+        try {
+            mode = Mode.valueOf(m.getOrDefault("mode", Mode.DEFAULT.name()).toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            WelcomerMod.LOGGER.warn("[Welcomer] Unknown mode '{}' in profile {}, using DEFAULT", m.get("mode"), name);
+        }
+
+        List<JoinFormat> formats = new ArrayList<>();
+        String joinFormats = m.get(JOIN_FORMAT);
+        if (joinFormats != null) {
+            for (String f : joinFormats.split("\n")) {
+                try {
+                    formats.add(JoinFormat.parse(f));
+                } catch (IllegalArgumentException e) {
+                    WelcomerMod.LOGGER.warn("[Welcomer] Skipping join format '{}' in profile {}: {}", f, name, e.getMessage());
+                }
+            }
+        }
+
+        return new Profile(
+                Boolean.parseBoolean(m.get("enabled")),
+                Boolean.parseBoolean(m.get("selfGreet")),
+                mode,
+                cooldown(m, name, "perPlayerCooldownSeconds", mode.perPlayerCooldown),
+                cooldown(m, name, "globalCooldownSeconds", mode.globalCooldown),
+                seconds(m, "selfGreetDelaySeconds", 2_000L),
+                seconds(m, "selfCooldownSeconds", 5 * 60_000L),
+                new JoinDetector(formats));
+    }
+
+    // A non-negative number of seconds from the profile, in ms
+    private static long seconds(Map<String, String> m, String key, long defMs) {
+        String v = m.get(key);
+        if (v == null) return defMs;
+        try {
+            long s = Long.parseLong(v);
+            return s >= 0 ? s * 1000L : defMs;
+        } catch (NumberFormatException e) {
+            return defMs;
+        }
+    }
+
+    // Presence, cooldown records and the reloaded history only reach back Greeter.longestCooldown(),
+    // so a longer cooldown would be forgotten early; clamp it instead
+    private static long cooldown(Map<String, String> m, String profile, String key, long defMs) {
+        long ms = seconds(m, key, defMs);
+        long max = Greeter.longestCooldown();
+        if (ms <= max) return ms;
+        WelcomerMod.LOGGER.warn("[Welcomer] {} in profile {} is above the maximum, using {} seconds", key, profile, max / 1000L);
+        return max;
+    }
+
+    private static int parseInt(String s, int def) {
+        try {
+            return Integer.parseInt(s);
+        } catch (NumberFormatException e) {
+            return def;
+        }
+    }
+
+    private static Map<String, String> freeze(Map<String, String> m) {
+        return Collections.unmodifiableMap(m);
+    }
+
+    private static Map<String, Map<String, String>> freezeAll(Map<String, Map<String, String>> m) {
+        Map<String, Map<String, String>> out = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<String, String>> e : m.entrySet()) out.put(e.getKey(), freeze(e.getValue()));
+        return Collections.unmodifiableMap(out);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof WelcomerConfig c && version == c.version && settings.equals(c.settings) && profiles.equals(c.profiles);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(version, settings, profiles);
+    }
+}
@@ -0,0 +1,111 @@
+package com.sq3rrr.welcomer.detect;
+
+import com.sq3rrr.welcomer.WelcomerMod;
+
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Server messages that mean we are chatting too much ("You are sending messages too fast",
+ * mute and kick warnings), parsed from welcomer_feedback.txt.
+ *
+ * A line is either plain text, found anywhere in the chat line, or "regex:<expression>".
+ * Both are case-insensitive. All lines are compiled into one alternation, each in its own
+ * group, so a chat line is scanned once no matter how many patterns there are. Regexes that
+ * would not keep to their group (named groups and backreferences, \Q quoting, comments
+ * under (?x)) or that fail to compile together are matched one by one instead. Immutable.
+ */
+public final class FeedbackPatterns {
+
+    public static final FeedbackPatterns EMPTY = new FeedbackPatterns(List.of());
+
+    private static final String REGEX_PREFIX = "regex:";
+    private static final int FLAGS = Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+
+    // Constructs whose meaning changes, or that run past the closing paren, inside the alternation
+    private static final Pattern NOT_COMBINABLE = Pattern.compile("\\\\[1-9]|\\\\k<|\\(\\?<[A-Za-z]|\\\\[QE]|\\(\\?[a-zA-Z-]*x");
+
+    private final List<String> sources;
+    private final Pattern combined;
+    private final Pattern[] separate;
+
+    /**
+     * @param lines lines that passed {@link #validate}
+     */
+    public FeedbackPatterns(List<String> lines) {
+        this.sources = List.copyOf(lines);
+        this.combined = combine(sources);
+        if (combined != null || sources.isEmpty()) {
+            this.separate = new Pattern[0];
+            return;
+        }
+        this.separate = new Pattern[sources.size()];
+        for (int i = 0; i < separate.length; i++) separate[i] = Pattern.compile(fragment(sources.get(i)), FLAGS);
+    }
+
+    private static Pattern combine(List<String> sources) {
+        if (sources.isEmpty()) return null;
+        StringBuilder sb = new StringBuilder();
+        for (String s : sources) {
+            String fragment = fragment(s);
+            if (s.trim().startsWith(REGEX_PREFIX) && NOT_COMBINABLE.matcher(fragment).find()) return null;
+            if (!sb.isEmpty()) sb.append('|');
+            sb.append("(?:").append(fragment).append(')');
+        }
+        try {
+            return Pattern.compile(sb.toString(), FLAGS);
+        } catch (PatternSyntaxException e) {
+            WelcomerMod.LOGGER.warn("[Welcomer] Feedback patterns don't combine ({}), checking them one by one", e.getDescription());
+            return null;
+        }
+    }
+
+    /**
+     * Throws IllegalArgumentException with a readable reason for bad lines.
+     */
+    public static void validate(String line) {
+        String s = line.trim();
+        if (s.isEmpty()) throw new IllegalArgumentException("empty pattern");
+        if (s.startsWith(REGEX_PREFIX)) {
+            String expr = s.substring(REGEX_PREFIX.length()).trim();
+            if (expr.isEmpty()) throw new IllegalArgumentException("empty regex");
+            try {
+                Pattern.compile(expr, FLAGS);
+            } catch (PatternSyntaxException e) {
+                throw new IllegalArgumentException("invalid regex: " + e.getDescription());
+            }
+        }
+    }
+
+    private static String fragment(String line) {
+        String s = line.trim();
+        return s.startsWith(REGEX_PREFIX) ? s.substring(REGEX_PREFIX.length()).trim() : Pattern.quote(s);
+    }
+
+    public boolean matches(String line) {
+        if (combined != null) return combined.matcher(line).find();
+        for (Pattern p : separate) {
+            if (p.matcher(line).find()) return true;
+        }
+        return false;
+    }
+
+    public List<String> sources() {
+        return sources;
+    }
+
+    public int size() {
+        return sources.size();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof FeedbackPatterns other && sources.equals(other.sources);
+    }
+
+    @Override
+    public int hashCode() {
+        return sources.hashCode();
+    }
+}
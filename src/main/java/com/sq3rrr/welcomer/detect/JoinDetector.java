@@ -0,0 +1,139 @@
+package com.sq3rrr.welcomer.detect;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Matches chat lines against every configured join format in one pass.
+ *
+ * Template formats are indexed by the last few characters of their literal suffix
+ * (or the first few of their prefix when the suffix is empty). A line is hashed once
+ * at its end and once at its start, so a non-join line costs two small hashes and
+ * two array probes no matter how many formats are loaded. Only formats in the hit
+ * bucket are verified with plain region compares. Regex formats are the slow escape
+ * hatch and are tried last, one after another.
+ *
+ * Immutable once built; safe to share between threads.
+ */
+public final class JoinDetector {
+
+    // Longest literal slice used as a bucket key. Longer keys spread formats better,
+    // but the key length is capped by the shortest literal in the index.
+    private static final int MAX_KEY_LENGTH = 8;
+
+    private final List<JoinFormat> formats;
+    private final LiteralIndex bySuffix;
+    private final LiteralIndex byPrefix;
+    private final JoinFormat[] regexFormats;
+
+    public JoinDetector(List<JoinFormat> formats) {
+        this.formats = List.copyOf(formats);
+
+        List<JoinFormat> suffixed = new ArrayList<>();
+        List<JoinFormat> prefixOnly = new ArrayList<>();
+        List<JoinFormat> regexes = new ArrayList<>();
+        for (JoinFormat f : this.formats) {
+            if (f.isRegex()) regexes.add(f);
+            else if (!f.suffix().isEmpty()) suffixed.add(f);
+            else prefixOnly.add(f);
+        }
+
+        this.bySuffix = new LiteralIndex(suffixed, true);
+        this.byPrefix = new LiteralIndex(prefixOnly, false);
+        this.regexFormats = regexes.toArray(new JoinFormat[0]);
+    }
+
+    /**
+     * Returns the joining player's name, or null if the line is not a join message.
+     */
+    public String match(String line) {
+        String name = bySuffix.match(line);
+        if (name != null) return name;
+
+        name = byPrefix.match(line);
+        if (name != null) return name;
+
+        for (JoinFormat f : regexFormats) {
+            name = f.extract(line);
+            if (name != null) return name;
+        }
+        return null;
+    }
+
+    public List<JoinFormat> formats() {
+        return formats;
+    }
+
+    public int size() {
+        return formats.size();
+    }
+
+    /**
+     * Hash table from a fixed-length literal slice (line tail or head) to candidate formats.
+     */
+    private static final class LiteralIndex {
+        private final boolean tail;
+        private final int keyLength;
+        private final JoinFormat[][] buckets;
+        private final int mask;
+
+        LiteralIndex(List<JoinFormat> formats, boolean tail) {
+            this.tail = tail;
+            if (formats.isEmpty()) {
+                keyLength = 0;
+                buckets = null;
+                mask = 0;
+                return;
+            }
+
+            int shortest = MAX_KEY_LENGTH;
+            for (JoinFormat f : formats) shortest = Math.min(shortest, literal(f).length());
+            keyLength = shortest;
+
+            int size = Integer.highestOneBit(Math.max(2, formats.size() * 2 - 1)) << 1;
+            List<List<JoinFormat>> groups = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) groups.add(null);
+            mask = size - 1;
+
+            for (JoinFormat f : formats) {
+                String lit = literal(f);
+                int from = tail ? lit.length() - keyLength : 0;
+                int slot = hash(lit, from, keyLength) & mask;
+                if (groups.get(slot) == null) groups.set(slot, new ArrayList<>(2));
+                groups.get(slot).add(f);
+            }
+
+            buckets = new JoinFormat[size][];
+            for (int i = 0; i < size; i++) {
+                List<JoinFormat> g = groups.get(i);
+                if (g != null) buckets[i] = g.toArray(new JoinFormat[0]);
+            }
+        }
+
+        String match(String line) {
+            if (buckets == null) return null;
+            int len = line.length();
+            if (len < keyLength) return null;
+
+            int from = tail ? len - keyLength : 0;
+            JoinFormat[] bucket = buckets[hash(line, from, keyLength) & mask];
+            if (bucket == null) return null;
+
+            for (JoinFormat f : bucket) {
+                String name = f.extract(line);
+                if (name != null) return name;
+            }
+            return null;
+        }
+
+        private String literal(JoinFormat f) {
+            return tail ? f.suffix() : f.prefix();
+        }
+
+        private static int hash(String s, int from, int length) {
+            int h = 0;
+            for (int i = from, end = from + length; i < end; i++) h = 31 * h + s.charAt(i);
+            return h ^ (h >>> 16);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.sq3rrr.welcomer.detect;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * One join-message format, parsed from a line of welcomer_joinformats.txt.
+ *
+ * Two kinds of lines are accepted:
+ * - Templates:  "{player} joined the game", "[+] {player}", "» {player} has arrived!"
+ *   Everything around {player} is matched literally, which lets JoinDetector index them.
+ * - Regexes:    "regex:^\[\w+] (\w+) connected$"
+ *   The player name is the named group "player" if present, otherwise group 1.
+ *   Regexes are matched one by one, so prefer templates where possible.
+ */
+public final class JoinFormat {
+
+    public static final String PLAYER = "{player}";
+    public static final String REGEX_PREFIX = "regex:";
+
+    private final String source;
+    private final String prefix;
+    private final String suffix;
+    private final Pattern regex;
+    private final boolean namedGroup;
+
+    private JoinFormat(String source, String prefix, String suffix, Pattern regex, boolean namedGroup) {
+        this.source = source;
+        this.prefix = prefix;
+        this.suffix = suffix;
+        this.regex = regex;
+        this.namedGroup = namedGroup;
+    }
+
+    /**
+     * Parses one config line. Throws IllegalArgumentException with a readable reason for bad lines.
+     */
+    public static JoinFormat parse(String line) {
+        String s = line.trim();
+        if (s.isEmpty()) throw new IllegalArgumentException("empty format");
+
+        if (s.startsWith(REGEX_PREFIX)) {
+            String expr = s.substring(REGEX_PREFIX.length()).trim();
+            Pattern p;
+            try {
+                p = Pattern.compile(expr);
+            } catch (PatternSyntaxException e) {
+                throw new IllegalArgumentException("invalid regex: " + e.getDescription());
+            }
+            boolean named = expr.contains("(?<player>");
+            if (!named && p.matcher("").groupCount() < 1) {
+                throw new IllegalArgumentException("regex needs a capture group for the player name");
+            }
+            return new JoinFormat(s, null, null, p, named);
+        }
+
+        int at = s.indexOf(PLAYER);
+        if (at < 0) throw new IllegalArgumentException("missing " + PLAYER + " placeholder");
+        if (s.indexOf(PLAYER, at + 1) >= 0) throw new IllegalArgumentException("more than one " + PLAYER + " placeholder");
+
+        String prefix = s.substring(0, at);
+        String suffix = s.substring(at + PLAYER.length());
+        if (prefix.isEmpty() && suffix.isEmpty()) {
+            throw new IllegalArgumentException("format would match every chat line");
+        }
+        return new JoinFormat(s, prefix, suffix, null, false);
+    }
+
+    public boolean isRegex() {
+        return regex != null;
+    }
+
+    public String prefix() {
+        return prefix;
+    }
+
+    public String suffix() {
+        return suffix;
+    }
+
+    public String source() {
+        return source;
+    }
+
+    /**
+     * Returns the player name if the whole line matches this format, otherwise null.
+     * Only allocates on a match.
+     */
+    String extract(String line) {
+        if (regex != null) {
+            Matcher m = regex.matcher(line);
+            if (!m.matches()) return null;
+            String name = namedGroup ? m.group("player") : m.group(1);
+            return name == null || name.isEmpty() ? null : name;
+        }
+
+        int len = line.length();
+        int pre = prefix.length();
+        int suf = suffix.length();
+        if (len <= pre + suf) return null;
+        if (!line.startsWith(suffix, len - suf) || !line.startsWith(prefix)) return null;
+        return line.substring(pre, len - suf);
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+}
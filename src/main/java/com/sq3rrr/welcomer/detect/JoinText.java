@@ -0,0 +1,94 @@
+package com.sq3rrr.welcomer.detect;
+
+import net.minecraft.text.PlainTextContent;
+import net.minecraft.text.Text;
+import net.minecraft.text.TextContent;
+import net.minecraft.text.TranslatableTextContent;
+
+/**
+ * Looks at the structure of a chat message before anyone flattens it.
+ *
+ * Vanilla join, leave, death and advancement messages arrive as translatable text, so the
+ * translation key says what they are without building the string: a
+ * "multiplayer.player.joined" message is a join whatever language the client uses, and
+ * a death message is neither a join nor a leave. Only messages this class doesn't
+ * recognise (plugin chat, literal text) need getString() and the join formats.
+ */
+public final class JoinText {
+
+    public enum Kind {
+        JOINED, LEFT, OTHER
+    }
+
+    public record Result(Kind kind, String name) {
+    }
+
+    // A vanilla message that is neither a join nor a leave
+    public static final Result OTHER = new Result(Kind.OTHER, null);
+
+    private static final String JOINED = "multiplayer.player.joined";
+    private static final String JOINED_RENAMED = "multiplayer.player.joined.renamed";
+    private static final String LEFT = "multiplayer.player.left";
+
+    // Vanilla messages that can't be joins or leaves
+    private static final String[] OTHER_PREFIXES = {
+            "death.",
+            "chat.type.advancement.",
+            "sleep.",
+            "commands."
+    };
+
+    private JoinText() {
+    }
+
+    /**
+     * A join or leave with the player's name, OTHER for a known vanilla message that is
+     * neither, or null if the structure is unknown and the flattened text has to be
+     * matched instead.
+     */
+    public static Result classify(Text message) {
+        TranslatableTextContent translatable = translatable(message);
+        if (translatable == null) return null;
+
+        String key = translatable.getKey();
+        Kind kind = key.equals(JOINED) || key.equals(JOINED_RENAMED) ? Kind.JOINED : key.equals(LEFT) ? Kind.LEFT : null;
+        if (kind != null) {
+            Object[] args = translatable.getArgs();
+            String name = args.length > 0 ? name(args[0]) : null;
+            return name == null || name.isEmpty() ? null : new Result(kind, name);
+        }
+        for (String prefix : OTHER_PREFIXES) {
+            if (key.startsWith(prefix)) return OTHER;
+        }
+        return null;
+    }
+
+    // The message itself, or its only child when it is wrapped in an empty literal
+    private static TranslatableTextContent translatable(Text message) {
+        TextContent content = message.getContent();
+        if (content == PlainTextContent.EMPTY && message.getSiblings().size() == 1) {
+            content = message.getSiblings().get(0).getContent();
+        }
+        return content instanceof TranslatableTextContent t ? t : null;
+    }
+
+    // Player display names carry the plain account name as their shift-click insertion,
+    // which skips team prefixes and suffixes
+    private static String name(Object arg) {
+        if (arg instanceof Text text) {
+            String insertion = text.getStyle().getInsertion();
+            if (insertion != null && isPlayerName(insertion)) return insertion;
+            return text.getString();
+        }
+        return arg == null ? null : arg.toString();
+    }
+
+    private static boolean isPlayerName(String s) {
+        if (s.isEmpty() || s.length() > 16) return false;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (!(c == '_' || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9'))) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,105 @@
+package com.sq3rrr.welcomer.greet;
+
+/**
+ * Cooldowns for ADAPTIVE mode, derived from how fast players are joining.
+ *
+ * Joins are counted per {@code bucketMs} bucket and smoothed with an EWMA whose time
+ * constant is {@code windowMs}. The bucket in progress is folded in early when it is already
+ * busier than the average, so a join storm is throttled within seconds rather than minutes.
+ *
+ * With J joins/hour and a budget of B greetings/hour:
+ * - J <= B: no global cooldown, per-player cooldown at its floor; everyone gets greeted.
+ * - J > B: global cooldown g = 1/B - 1/J. After a greeting we wait g, then the next join
+ *   (on average 1/J later) is greeted, which works out to about B greetings an hour.
+ *   The per-player cooldown grows with J/B so rejoin spam in a storm isn't greeted twice.
+ *
+ * Not thread-safe, used from the client thread; the budget may be set from any thread.
+ */
+public final class AdaptiveCooldowns {
+
+    private static final long HOUR_MS = 60 * 60 * 1000L;
+
+    private final long bucketMs;
+    private final double alpha;
+    private final long minPerPlayer;
+    private final long maxPerPlayer;
+    private volatile int budgetPerHour;
+
+    private long bucketStart = Long.MIN_VALUE;
+    private int bucketJoins = 0;
+    private double joinsPerBucket = 0; // EWMA over completed buckets
+
+    // Values from the last update(), for /welcomer status
+    private double joinsPerHour = 0;
+    private long perPlayerCooldown;
+    private long globalCooldown = 0;
+
+    public AdaptiveCooldowns(long bucketMs, long windowMs, long minPerPlayer, long maxPerPlayer, int budgetPerHour) {
+        this.bucketMs = bucketMs;
+        this.alpha = 1 - Math.exp(-(double) bucketMs / windowMs);
+        this.minPerPlayer = minPerPlayer;
+        this.maxPerPlayer = maxPerPlayer;
+        this.perPlayerCooldown = minPerPlayer;
+        setBudget(budgetPerHour);
+    }
+
+    public void onJoin(long now) {
+        advance(now);
+        bucketJoins++;
+    }
+
+    /**
+     * Recomputes the effective cooldowns for {@code now}.
+     */
+    public void update(long now) {
+        advance(now);
+        // Fold the bucket in progress in as if it had just ended
+        double perBucket = Math.max(joinsPerBucket, joinsPerBucket + alpha * (bucketJoins - joinsPerBucket));
+        joinsPerHour = perBucket * HOUR_MS / bucketMs;
+
+        int budget = budgetPerHour;
+        if (joinsPerHour <= budget) {
+            globalCooldown = 0;
+            perPlayerCooldown = minPerPlayer;
+        } else {
+            globalCooldown = (long) (HOUR_MS / (double) budget - HOUR_MS / joinsPerHour);
+            perPlayerCooldown = Math.min(maxPerPlayer, (long) (minPerPlayer * (joinsPerHour / budget)));
+        }
+    }
+
+    // Folds finished buckets into the average; empty buckets in between decay it
+    private void advance(long now) {
+        if (bucketStart == Long.MIN_VALUE) {
+            bucketStart = now;
+            return;
+        }
+        long elapsed = (now - bucketStart) / bucketMs;
+        if (elapsed <= 0) return;
+
+        joinsPerBucket += alpha * (bucketJoins - joinsPerBucket);
+        if (elapsed > 1) joinsPerBucket *= Math.pow(1 - alpha, elapsed - 1);
+        bucketJoins = 0;
+        bucketStart += elapsed * bucketMs;
+    }
+
+    public void setBudget(int budgetPerHour) {
+        if (budgetPerHour <= 0) throw new IllegalArgumentException("budget must be positive");
+        this.budgetPerHour = budgetPerHour;
+    }
+
+    public int budget() {
+        return budgetPerHour;
+    }
+
+    public double joinsPerHour() {
+        return joinsPerHour;
+    }
+
+    public long perPlayerCooldown() {
+        return perPlayerCooldown;
+    }
+
+    public long globalCooldown() {
+        return globalCooldown;
+    }
+}
@@ -0,0 +1,214 @@
+package com.sq3rrr.welcomer.greet;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Outbound queue between greeting decisions and the network handler.
+ *
+ * - Sends are paced by a TokenBucket so bursts can't trip server anti-spam.
+ * - Greetings wait {@code coalesceWindowMs} after the first pending join; everyone who
+ *   joined in the meantime is merged into one "Welcome A, B and C!" line that fits
+ *   the chat length limit. A lone join still gets a normal rotated greeting.
+ * - Greetings older than {@code maxAgeMs} are dropped instead of being sent late; the
+ *   GreetingListener hears about every greeting that went out or never will.
+ * - A token is only spent on a line that is actually sent.
+ * - Plain messages (self-greets) are never merged and go out before greetings.
+ * - An optional CircuitBreaker holds everything back while the server is complaining.
+ *
+ * Not thread-safe, meant to be used from the client thread only.
+ */
+public final class ChatOutbox {
+
+    /**
+     * Told about every line the outbox sends, e.g. for metrics.
+     */
+    public interface SendListener {
+        // Once per greeted player in the line, with the time its join was queued
+        void sent(long queuedAt, long now);
+
+        // Once per chat line
+        void line();
+    }
+
+    /**
+     * Told what became of each queued greeting, so the greeter can commit or undo its decision.
+     */
+    public interface GreetingListener {
+        void greeted(String player, long queuedAt, long now);
+
+        // Dropped as stale, cleared, or nothing to render: the player was not greeted
+        void dropped(String player, long queuedAt);
+    }
+
+    // Vanilla rejects chat messages longer than this
+    public static final int MAX_CHAT_LENGTH = 256;
+
+    private final TokenBucket bucket;
+    private final long coalesceWindowMs;
+    private final long maxAgeMs;
+    private final Function<String, String> singleGreeting;
+    private final String groupPrefix;
+    private final String groupSuffix;
+
+    private final Deque<Pending> greetings = new ArrayDeque<>();
+    private final Deque<Pending> messages = new ArrayDeque<>();
+    private long droppedStale = 0;
+    private SendListener listener;
+    private GreetingListener greetingListener;
+    private CircuitBreaker breaker;
+
+    /**
+     * @param singleGreeting renders the greeting for one player, may return null to skip
+     * @param groupTemplate  merged greeting, %s is replaced by the joined name list
+     */
+    public ChatOutbox(TokenBucket bucket, long coalesceWindowMs, long maxAgeMs,
+                      Function<String, String> singleGreeting, String groupTemplate) {
+        int at = groupTemplate.indexOf("%s");
+        if (at < 0) throw new IllegalArgumentException("group template needs a %s placeholder");
+        this.bucket = bucket;
+        this.coalesceWindowMs = coalesceWindowMs;
+        this.maxAgeMs = maxAgeMs;
+        this.singleGreeting = singleGreeting;
+        this.groupPrefix = groupTemplate.substring(0, at);
+        this.groupSuffix = groupTemplate.substring(at + 2);
+    }
+
+    public void setSendListener(SendListener listener) {
+        this.listener = listener;
+    }
+
+    public void setGreetingListener(GreetingListener greetingListener) {
+        this.greetingListener = greetingListener;
+    }
+
+    public void setCircuitBreaker(CircuitBreaker breaker) {
+        this.breaker = breaker;
+    }
+
+    public void offerGreeting(String player, long now) {
+        greetings.addLast(new Pending(player, now));
+    }
+
+    public void offerMessage(String text, long now) {
+        messages.addLast(new Pending(text, now));
+    }
+
+    /**
+     * Sends at most one message if a token is available. Call once per client tick.
+     */
+    public void drain(long now, Consumer<String> sink) {
+        dropStale(greetings, now);
+        dropStale(messages, now);
+        if (pending() == 0 || (breaker != null && !breaker.allow(now))) return;
+
+        if (!messages.isEmpty()) {
+            if (bucket.tryTake(now)) send(clamp(messages.pollFirst().text), now, sink);
+            return;
+        }
+
+        Pending first = greetings.peekFirst();
+        if (first == null || now - first.queuedAt < coalesceWindowMs) return;
+        if (bucket.available(now) == 0) return;
+
+        // The token is taken once there is a line: a greeting that renders to nothing costs none
+        String msg = greetings.size() == 1 ? takeSingle(now) : takeGroup(now);
+        if (msg != null && bucket.tryTake(now)) send(clamp(msg), now, sink);
+    }
+
+    public int pending() {
+        return greetings.size() + messages.size();
+    }
+
+    public long droppedStale() {
+        return droppedStale;
+    }
+
+    public void clear() {
+        while (!greetings.isEmpty()) dropped(greetings.pollFirst());
+        messages.clear();
+    }
+
+    // ----------------------------
+    // INTERNALS
+    // ----------------------------
+
+    // Packs as many queued names as fit into one line; the rest stay queued for the next token.
+    private String takeGroup(long now) {
+        int budget = MAX_CHAT_LENGTH - groupPrefix.length() - groupSuffix.length();
+        int count = 0;
+        int namesLength = 0;
+        for (Pending p : greetings) {
+            int next = namesLength + p.text.length() + separatorsLength(count + 1);
+            if (next > budget && count > 0) break;
+            namesLength += p.text.length();
+            count++;
+        }
+
+        if (count == 1) return takeSingle(now);
+
+        StringBuilder sb = new StringBuilder(groupPrefix.length() + namesLength + separatorsLength(count) + groupSuffix.length());
+        sb.append(groupPrefix);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) sb.append(i == count - 1 ? " and " : ", ");
+            sb.append(takeGreeting(now).text);
+        }
+        sb.append(groupSuffix);
+        return sb.toString();
+    }
+
+    private String takeSingle(long now) {
+        Pending p = greetings.pollFirst();
+        String msg = singleGreeting.apply(p.text);
+        if (msg == null) {
+            dropped(p);
+            return null;
+        }
+        greeted(p, now);
+        return msg;
+    }
+
+    private Pending takeGreeting(long now) {
+        Pending p = greetings.pollFirst();
+        greeted(p, now);
+        return p;
+    }
+
+    private void greeted(Pending p, long now) {
+        if (listener != null) listener.sent(p.queuedAt, now);
+        if (greetingListener != null) greetingListener.greeted(p.text, p.queuedAt, now);
+    }
+
+    private void dropped(Pending p) {
+        if (greetingListener != null) greetingListener.dropped(p.text, p.queuedAt);
+    }
+
+    private void send(String msg, long now, Consumer<String> sink) {
+        sink.accept(msg);
+        if (breaker != null) breaker.onSent(now);
+        if (listener != null) listener.line();
+    }
+
+    // "A", "A and B", "A, B and C"
+    private static int separatorsLength(int names) {
+        if (names < 2) return 0;
+        return (names - 2) * 2 + 5;
+    }
+
+    private void dropStale(Deque<Pending> queue, long now) {
+        while (!queue.isEmpty() && now - queue.peekFirst().queuedAt > maxAgeMs) {
+            Pending p = queue.pollFirst();
+            droppedStale++;
+            if (queue == greetings) dropped(p);
+        }
+    }
+
+    private static String clamp(String msg) {
+        return msg.length() <= MAX_CHAT_LENGTH ? msg : msg.substring(0, MAX_CHAT_LENGTH);
+    }
+
+    private record Pending(String text, long queuedAt) {
+    }
+}
@@ -0,0 +1,109 @@
+package com.sq3rrr.welcomer.greet;
+
+/**
+ * Stops outbound chat when the server complains about it.
+ *
+ * - CLOSED: sending normally.
+ * - OPEN: the server warned us (a feedback line shortly after one of our messages); nothing
+ *   is sent until the backoff runs out. Each trip without a clean probe in between doubles
+ *   the backoff, up to {@code maxBackoffMs}.
+ * - HALF_OPEN: one probe message may go out. If no feedback follows within
+ *   {@code feedbackWindowMs} the breaker closes and the backoff resets; feedback trips it
+ *   again with the doubled backoff.
+ *
+ * Feedback only counts within {@code feedbackWindowMs} after our last send, so a warning
+ * aimed at someone else (or a player quoting one) doesn't silence us.
+ *
+ * Not thread-safe, used from the client thread.
+ */
+public final class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final long baseBackoffMs;
+    private final long maxBackoffMs;
+    private final long feedbackWindowMs;
+
+    private State state = State.CLOSED;
+    private long backoffMs = 0;
+    private long openUntil = 0;
+    private long lastSentAt = Long.MIN_VALUE;
+    private boolean probeSent = false;
+    private long trips = 0;
+
+    public CircuitBreaker(long baseBackoffMs, long maxBackoffMs, long feedbackWindowMs) {
+        this.baseBackoffMs = baseBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+        this.feedbackWindowMs = feedbackWindowMs;
+    }
+
+    /**
+     * Whether a message may be sent now.
+     */
+    public boolean allow(long now) {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (now < openUntil) return false;
+                state = State.HALF_OPEN;
+                probeSent = false;
+                return true;
+            default:
+                if (!probeSent) return true;
+                // Probe went through without complaints
+                if (now - lastSentAt > feedbackWindowMs) {
+                    state = State.CLOSED;
+                    backoffMs = 0;
+                    return true;
+                }
+                return false;
+        }
+    }
+
+    public void onSent(long now) {
+        lastSentAt = now;
+        if (state == State.HALF_OPEN) probeSent = true;
+    }
+
+    /**
+     * True if feedback arriving now would be about our own messages.
+     */
+    public boolean awaitingFeedback(long now) {
+        return lastSentAt != Long.MIN_VALUE && now - lastSentAt <= feedbackWindowMs;
+    }
+
+    /**
+     * The server complained: open, with a longer backoff than last time unless we had recovered.
+     * Returns false if already open (several warnings about the same message).
+     */
+    public boolean trip(long now) {
+        if (state == State.OPEN) return false;
+        backoffMs = backoffMs == 0 ? baseBackoffMs : Math.min(maxBackoffMs, backoffMs * 2);
+        openUntil = now + backoffMs;
+        state = State.OPEN;
+        trips++;
+        return true;
+    }
+
+    public void reset() {
+        state = State.CLOSED;
+        backoffMs = 0;
+        probeSent = false;
+        lastSentAt = Long.MIN_VALUE;
+    }
+
+    public State state() {
+        return state;
+    }
+
+    public long remaining(long now) {
+        return state == State.OPEN ? Math.max(0, openUntil - now) : 0;
+    }
+
+    public long trips() {
+        return trips;
+    }
+}
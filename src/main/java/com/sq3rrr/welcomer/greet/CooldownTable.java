@@ -0,0 +1,260 @@
+package com.sq3rrr.welcomer.greet;
+
+import java.util.Arrays;
+
+/**
+ * Per-player cooldown store that forgets players once they were last greeted longer ago
+ * than a fixed horizon. Players are keyed by their NameTable id (any non-negative int).
+ *
+ * The horizon is set once and must be at least the longest cooldown callers ask about;
+ * the cooldown passed to isCooling() may change from call to call (ADAPTIVE mode) but
+ * never decides what is forgotten, so raising it still sees earlier greetings. A cooldown
+ * longer than the horizon is treated as the horizon.
+ *
+ * Layout:
+ * - an open-addressing hash table (keys / stamps) for O(1) lookups, and
+ * - a ring of the same entries in the order they were recorded.
+ *
+ * Since greet times only move forward, the oldest record is always at the head of the
+ * ring, so expire() just pops from the head until it reaches a record inside the
+ * horizon. Memory therefore tracks the number of players greeted within the horizon,
+ * not everyone who ever joined. Note that this is the horizon, not the cooldown in use:
+ * Greeter keeps an hour of greetings in every mode, even with a 5 minute cooldown, and
+ * countCooling() rather than size() says how many players are actually cooling down.
+ *
+ * Lookups and records do not allocate; the arrays only grow (or shrink back) on resize.
+ * Not thread-safe, meant to be used from the client thread only.
+ */
+public final class CooldownTable {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private static final int EMPTY = -1;
+
+    private final long horizon;
+
+    // Hash table, linear probing, load factor <= 0.5
+    private int[] keys = newKeys(MIN_CAPACITY);
+    private long[] stamps = new long[MIN_CAPACITY];
+    private int size;
+
+    // Insertion-ordered ring of (key, stamp)
+    private int[] ringKeys = new int[MIN_CAPACITY];
+    private long[] ringStamps = new long[MIN_CAPACITY];
+    private int ringHead;
+    private int ringCount;
+
+    /**
+     * @param horizon how long records are kept: the longest cooldown isCooling() will be asked about
+     */
+    public CooldownTable(long horizon) {
+        if (horizon <= 0) throw new IllegalArgumentException("horizon must be positive");
+        this.horizon = horizon;
+    }
+
+    /**
+     * Drops every record older than the horizon, then reports whether the key is still cooling down.
+     */
+    public boolean isCooling(int key, long now, long cooldown) {
+        expire(now);
+        int slot = find(key);
+        return slot >= 0 && now - stamps[slot] < Math.min(cooldown, horizon);
+    }
+
+    /**
+     * Marks the key as greeted at the given time.
+     */
+    public void record(int key, long now) {
+        int slot = find(key);
+        if (slot >= 0) {
+            stamps[slot] = now;
+        } else {
+            if ((size + 1) * 2 > keys.length) resize(keys.length * 2);
+            insert(key, now);
+            size++;
+        }
+        pushRing(key, now);
+    }
+
+    /**
+     * Removes the key's record if it is still the one made at {@code stamp} (a greeting that
+     * was never sent). Its ring entry no longer matches and is skipped when it expires.
+     */
+    public void forget(int key, long stamp) {
+        int slot = find(key);
+        if (slot >= 0 && stamps[slot] == stamp) {
+            removeAt(slot);
+            size--;
+        }
+    }
+
+    /**
+     * Removes every record older than the horizon.
+     */
+    public void expire(long now) {
+        while (ringCount > 0 && now - ringStamps[ringHead] >= horizon) {
+            int key = ringKeys[ringHead];
+            long stamp = ringStamps[ringHead];
+            ringHead = (ringHead + 1) & (ringKeys.length - 1);
+            ringCount--;
+
+            // A newer record for the same key may still be in the ring; only the matching one removes it.
+            int slot = find(key);
+            if (slot >= 0 && stamps[slot] == stamp) {
+                removeAt(slot);
+                size--;
+            }
+        }
+
+        if (keys.length > MIN_CAPACITY && size * 8 < keys.length) resize(keys.length / 2);
+        if (ringKeys.length > MIN_CAPACITY && ringCount * 8 < ringKeys.length) resizeRing(ringKeys.length / 2);
+    }
+
+    /**
+     * Adds records that may be older than ones already here (history loaded after greetings
+     * were recorded). Each key keeps its newest stamp and the ring is rebuilt in time order.
+     */
+    public void merge(int[] mergeKeys, long[] mergeStamps) {
+        int n = 0;
+        int[] k = new int[ringCount + mergeKeys.length];
+        long[] s = new long[k.length];
+        int mask = ringKeys.length - 1;
+        for (int i = 0; i < ringCount; i++) {
+            int at = (ringHead + i) & mask;
+            int slot = find(ringKeys[at]);
+            // Skip ring entries a newer record of the same key has replaced
+            if (slot < 0 || stamps[slot] != ringStamps[at]) continue;
+            k[n] = ringKeys[at];
+            s[n++] = ringStamps[at];
+        }
+        System.arraycopy(mergeKeys, 0, k, n, mergeKeys.length);
+        System.arraycopy(mergeStamps, 0, s, n, mergeStamps.length);
+        n += mergeKeys.length;
+
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> Long.compare(s[a], s[b]));
+        clear();
+        // Oldest first, so a later record of the same key is always the newer one
+        for (int i : order) record(k[i], s[i]);
+    }
+
+    /**
+     * Keys recorded less than {@code cooldown} ago. Walks back from the newest record, so the
+     * cost is the number of keys counted.
+     */
+    public int countCooling(long now, long cooldown) {
+        int n = 0;
+        int mask = ringKeys.length - 1;
+        for (int i = ringCount - 1; i >= 0; i--) {
+            int at = (ringHead + i) & mask;
+            if (now - ringStamps[at] >= cooldown) break;
+            int slot = find(ringKeys[at]);
+            if (slot >= 0 && stamps[slot] == ringStamps[at]) n++;
+        }
+        return n;
+    }
+
+    /**
+     * Records kept, i.e. keys greeted within the horizon (not only those still cooling down).
+     */
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+        ringHead = 0;
+        ringCount = 0;
+    }
+
+    // ----------------------------
+    // HASH TABLE
+    // ----------------------------
+    private int find(int key) {
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        int k;
+        while ((k = keys[i]) != EMPTY) {
+            if (k == key) return i;
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void insert(int key, long stamp) {
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        while (keys[i] != EMPTY) i = (i + 1) & mask;
+        keys[i] = key;
+        stamps[i] = stamp;
+    }
+
+    // Backward-shift deletion keeps probe chains intact without tombstones.
+    private void removeAt(int slot) {
+        int mask = keys.length - 1;
+        int hole = slot;
+        int i = slot;
+        while (true) {
+            i = (i + 1) & mask;
+            int k = keys[i];
+            if (k == EMPTY) break;
+            int home = mix(k) & mask;
+            boolean movable = hole <= i ? (home <= hole || home > i) : (home <= hole && home > i);
+            if (movable) {
+                keys[hole] = k;
+                stamps[hole] = stamps[i];
+                hole = i;
+            }
+        }
+        keys[hole] = EMPTY;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        long[] oldStamps = stamps;
+        keys = newKeys(capacity);
+        stamps = new long[capacity];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) insert(oldKeys[i], oldStamps[i]);
+        }
+    }
+
+    private static int[] newKeys(int capacity) {
+        int[] k = new int[capacity];
+        Arrays.fill(k, EMPTY);
+        return k;
+    }
+
+    // ----------------------------
+    // RING
+    // ----------------------------
+    private void pushRing(int key, long stamp) {
+        if (ringCount == ringKeys.length) resizeRing(ringKeys.length * 2);
+        int tail = (ringHead + ringCount) & (ringKeys.length - 1);
+        ringKeys[tail] = key;
+        ringStamps[tail] = stamp;
+        ringCount++;
+    }
+
+    private void resizeRing(int capacity) {
+        int[] newKeys = new int[capacity];
+        long[] newStamps = new long[capacity];
+        int mask = ringKeys.length - 1;
+        for (int n = 0; n < ringCount; n++) {
+            int i = (ringHead + n) & mask;
+            newKeys[n] = ringKeys[i];
+            newStamps[n] = ringStamps[i];
+        }
+        ringKeys = newKeys;
+        ringStamps = newStamps;
+        ringHead = 0;
+    }
+
+    // Ids are small and dense; spread them so neighbours don't share probe chains
+    private static int mix(int id) {
+        int h = id * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,538 @@
+package com.sq3rrr.welcomer.greet;
+
+import com.sq3rrr.welcomer.DebugLog;
+import com.sq3rrr.welcomer.config.ConfigSnapshot;
+import com.sq3rrr.welcomer.detect.JoinDetector;
+import com.sq3rrr.welcomer.history.GreetClaims;
+import com.sq3rrr.welcomer.history.GreetHistory;
+import com.sq3rrr.welcomer.history.SeenPlayers;
+import com.sq3rrr.welcomer.ignore.IgnoreRules;
+import com.sq3rrr.welcomer.metrics.Metrics;
+import com.sq3rrr.welcomer.presence.PresenceTracker;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * The greeting pipeline without any Minecraft dependency:
+ * chat line -> join/leave detection -> presence -> ignore / reconnect / cooldown checks
+ * -> message rotation -> outbox.
+ *
+ * WelcomerMod feeds it GAME lines and drains it every client tick; benchmarks and tools
+ * can drive the exact same code with their own clock and sink. Time is always passed in.
+ *
+ * Config (detector, messages, ignore list, mode) lives in an immutable ConfigSnapshot that
+ * can be swapped from any thread; everything else has a single writer. In the mod that is
+ * the client thread, which applies events other threads posted to its EventLoop.
+ */
+public final class Greeter {
+
+    /**
+     * What happened to one chat line. Everything except QUEUED means no greeting.
+     */
+    public enum Decision {
+        NOT_JOIN, SELF, DISABLED, IGNORED, RECONNECT, GLOBAL_COOLDOWN, PLAYER_COOLDOWN, CLAIMED, QUEUED
+    }
+
+    // Outbound chat: token bucket (burst 2, then 1 per 4s), joins within 1.5s merged, dropped after 20s
+    private static final String GROUP_GREETING = "Welcome %s!";
+
+    // Current config, replaced as a whole on reload or command
+    private final AtomicReference<ConfigSnapshot> config;
+    private String selfName;
+
+    // Shuffled rotation of the snapshot's messages, no repeats within 5 draws; rebuilt when the list is swapped
+    public static final int NO_REPEAT = 5;
+    private MessagePool<GreetingTemplate> messagePool = new MessagePool<>(List.of(), NO_REPEAT);
+    private MessagePool<GreetingTemplate> firstJoinPool = new MessagePool<>(List.of(), NO_REPEAT);
+
+    // Values for {online} / {joinsToday}; renderNow is the time of the tick that is sending
+    private IntSupplier onlineCount = () -> 0;
+    private int joinsToday = 0;
+    private long nextMidnight = Long.MIN_VALUE;
+    private long renderNow = 0;
+    private final GreetingTemplate.Context templateContext = new GreetingTemplate.Context() {
+        @Override
+        public int online() {
+            return onlineCount.getAsInt();
+        }
+
+        @Override
+        public int joinsToday() {
+            return joinsToday;
+        }
+    };
+
+    // Cooldowns & state, keyed by the presence tracker's player ids. Records are kept for the
+    // longest cooldown any mode uses, so ADAPTIVE can raise the cooldown without having forgotten anyone.
+    private final CooldownTable lastGreeted = new CooldownTable(longestCooldown());
+    private boolean enabled = false;
+    private long lastGlobalGreet = 0;
+    // What a greeting that never gets sent hands back: the global greet before it and its global claim
+    private long previousGlobalGreet = 0;
+    private long claimedGlobalUntil = 0;
+
+    // ADAPTIVE mode: join rate over 30s buckets, 10 min window; per-player 5..60 min, 60 greetings/hour
+    private static final long ADAPTIVE_MAX_PLAYER_COOLDOWN = 60 * 60_000L;
+    private final AdaptiveCooldowns adaptive = new AdaptiveCooldowns(
+            30_000L, 10 * 60_000L, Mode.ADAPTIVE.perPlayerCooldown, ADAPTIVE_MAX_PLAYER_COOLDOWN, 60);
+
+    // Who joined and left recently; rejoining within 60s of leaving is a reconnect, not a new join.
+    // Ids are kept as long as any cooldown could still refer to them
+    private static final long RECONNECT_GRACE_MS = 60_000L;
+    private final PresenceTracker presence = new PresenceTracker(RECONNECT_GRACE_MS, longestCooldown());
+
+    // On-disk copy of the cooldown state for the current server, null when not connected
+    private GreetHistory history;
+
+    // Claims shared with the other clients on this machine, null unless coordinating
+    private GreetClaims claims;
+
+    // Everyone seen joining the current server, to pick first-join messages; null when not connected
+    private SeenPlayers seen;
+
+    private final ChatOutbox outbox;
+
+    // Pauses the outbox when the server warns about spam: 30s backoff doubling up to 10 min,
+    // warnings only count within 5s of one of our messages
+    private final CircuitBreaker breaker = new CircuitBreaker(30_000L, 10 * 60_000L, 5_000L);
+    private Consumer<String> feedbackListener = line -> {
+    };
+
+    // Opt-in counters; one branch per line while off
+    private final Metrics metrics = new Metrics();
+
+    public Greeter(ConfigSnapshot config, long now) {
+        this.config = new AtomicReference<>(config);
+        this.outbox = new ChatOutbox(
+                new TokenBucket(2, 4_000L, now),
+                1_500L, 20_000L, this::renderGreeting, GROUP_GREETING);
+        this.outbox.setSendListener(metrics);
+        this.outbox.setGreetingListener(new ChatOutbox.GreetingListener() {
+            @Override
+            public void greeted(String player, long queuedAt, long now) {
+                onGreetingSent(player, queuedAt);
+            }
+
+            @Override
+            public void dropped(String player, long queuedAt) {
+                onGreetingDropped(player, queuedAt);
+            }
+        });
+        this.outbox.setCircuitBreaker(breaker);
+    }
+
+    // ----------------------------
+    // PIPELINE
+    // ----------------------------
+
+    /**
+     * Entry point for every GAME chat line.
+     */
+    public Decision onGameMessage(String line, long now) {
+        Decision d = decide(line, now);
+        if (metrics.isEnabled()) metrics.record(d);
+        return d;
+    }
+
+    /**
+     * Entry point for GAME lines that are not matched for joins (join detection from the
+     * player list, vanilla messages): only checked for server feedback.
+     */
+    public void onServerMessage(String line, long now) {
+        checkFeedback(config.get(), line, now);
+    }
+
+    /**
+     * Entry point for joins detected some other way (player list packets).
+     */
+    public Decision onPlayerJoined(String player, long now) {
+        Decision d = onJoin(config.get(), player, now);
+        if (metrics.isEnabled()) metrics.record(d);
+        return d;
+    }
+
+    /**
+     * Entry point for leaves detected some other way (structured chat, player list packets).
+     */
+    public void onPlayerLeft(String player, long now) {
+        if (player != null && !player.isEmpty()) presence.left(player, now);
+    }
+
+    public Decision greetPlayer(String player, long now) {
+        Decision d;
+        if (player == null || player.isEmpty()) {
+            DebugLog.log("Skipped greeting for player: {}", player);
+            d = Decision.IGNORED;
+        } else {
+            d = greetPlayer(config.get(), presence.id(player, now), now);
+        }
+        if (metrics.isEnabled()) metrics.record(d);
+        return d;
+    }
+
+    private Decision decide(String line, long now) {
+        ConfigSnapshot cfg = config.get();
+        String playerName = cfg.joinDetector().match(line);
+        if (playerName == null && cfg.serverJoinDetector().size() > 0) playerName = cfg.serverJoinDetector().match(line);
+        if (playerName != null) return onJoin(cfg, playerName, now);
+
+        String left = cfg.leaveDetector().match(line);
+        if (left != null) {
+            presence.left(left, now);
+        } else {
+            checkFeedback(cfg, line, now);
+        }
+        return Decision.NOT_JOIN;
+    }
+
+    // Only lines shortly after one of our messages are matched, so this is free most of the time
+    private void checkFeedback(ConfigSnapshot cfg, String line, long now) {
+        if (!breaker.awaitingFeedback(now) || !cfg.feedback().matches(line)) return;
+        if (!breaker.trip(now)) return;
+        DebugLog.log("Server feedback '{}', pausing greetings for {}ms", line, breaker.remaining(now));
+        feedbackListener.accept(line);
+    }
+
+    private Decision onJoin(ConfigSnapshot cfg, String playerName, long now) {
+        if (playerName.equals(selfName)) return Decision.SELF;
+        countJoin(now);
+        int id = presence.joined(playerName, now);
+        presence.setNewcomer(id, seen != null && seen.add(playerName));
+        return greetPlayer(cfg, id, now);
+    }
+
+    private Decision greetPlayer(ConfigSnapshot cfg, int id, long now) {
+        String player = presence.name(id);
+        if (!enabled) {
+            DebugLog.log("Skipped greeting for player: {}", player);
+            return Decision.DISABLED;
+        }
+        if (presence.isIgnored(id, cfg.ignore())) {
+            DebugLog.log("Skipped greeting for player: {}", player);
+            return Decision.IGNORED;
+        }
+        if (presence.isReconnect(id, now)) {
+            DebugLog.log("{} is reconnecting. Skipping greeting.", player);
+            return Decision.RECONNECT;
+        }
+
+        long perPlayerCooldown = perPlayerCooldown(cfg, now);
+        long globalCooldown = cfg.globalCooldown();
+        if (cfg.mode() == Mode.ADAPTIVE) globalCooldown = Math.max(globalCooldown, adaptive.globalCooldown());
+        if (cfg.mode() == Mode.DEFAULT) {
+            // DEFAULT: per-player only
+            if (lastGreeted.isCooling(id, now, perPlayerCooldown)) {
+                DebugLog.log("Per-player cooldown active for {}. Skipping greeting.", player);
+                return Decision.PLAYER_COOLDOWN;
+            }
+            if (claims != null && !claims.claim(player, now, perPlayerCooldown, 0)) {
+                DebugLog.log("Another client greets {}. Skipping greeting.", player);
+                return Decision.CLAIMED;
+            }
+            lastGreeted.record(id, now);
+            // Do NOT bump lastGlobalGreet (global ignored in DEFAULT)
+        } else {
+            // CONSTANTIAM, HYPERSAFE or ADAPTIVE: enforce global cooldown first (if >0), then per-player
+            if (globalCooldown > 0 && now - lastGlobalGreet < globalCooldown) {
+                DebugLog.log("Global cooldown active. Skipping greeting for player: {}", player);
+                return Decision.GLOBAL_COOLDOWN;
+            }
+            if (lastGreeted.isCooling(id, now, perPlayerCooldown)) {
+                DebugLog.log("Per-player cooldown active for {}. Skipping greeting.", player);
+                return Decision.PLAYER_COOLDOWN;
+            }
+            if (claims != null && !claims.claim(player, now, perPlayerCooldown, globalCooldown)) {
+                DebugLog.log("Another client greets {} or holds the global cooldown. Skipping greeting.", player);
+                return Decision.CLAIMED;
+            }
+            // passed all checks
+            lastGreeted.record(id, now);
+            previousGlobalGreet = lastGlobalGreet;
+            lastGlobalGreet = now;
+            claimedGlobalUntil = claims != null && globalCooldown > 0 ? now + globalCooldown : 0;
+        }
+
+        // The cooldowns above count from now so the player can't be queued twice; the history
+        // is written once the greeting is sent, and all of it is undone if it never is.
+        // Rendering happens when the outbox sends, so bursts can be merged into one line
+        outbox.offerGreeting(player, now);
+        if (DebugLog.isEnabled()) DebugLog.log("Queued greeting for {} | Outbox size: {}", player, outbox.pending());
+        return Decision.QUEUED;
+    }
+
+    private void onGreetingSent(String player, long queuedAt) {
+        if (history == null) return;
+        history.append(player, queuedAt);
+        if (lastGlobalGreet == queuedAt) history.setLastGlobal(queuedAt);
+    }
+
+    // Dropped as stale, on disconnect, or nothing to render: the player wasn't greeted after all
+    private void onGreetingDropped(String player, long queuedAt) {
+        int id = presence.find(player);
+        if (id >= 0) lastGreeted.forget(id, queuedAt);
+        boolean global = lastGlobalGreet == queuedAt;
+        if (global) lastGlobalGreet = previousGlobalGreet;
+        if (claims != null) claims.release(player, queuedAt, global ? claimedGlobalUntil : 0);
+        DebugLog.log("Greeting for {} was not sent, cooldown released", player);
+    }
+
+    /**
+     * Sends whatever the outbox allows right now. Call once per client tick.
+     */
+    public void tick(long now, Consumer<String> sink) {
+        renderNow = now;
+        outbox.drain(now, sink);
+    }
+
+    // Called by the outbox for a lone join
+    public String renderGreeting(String player) {
+        int id = presence.find(player);
+        boolean newcomer = id >= 0 && presence.isNewcomer(id) && !config.get().firstJoinMessages().isEmpty();
+        GreetingTemplate template = newcomer ? firstJoinMessages().next() : messages().next();
+        if (template == null) {
+            DebugLog.log("Welcome messages list is empty, skipping greeting for player: {}", player);
+            return null;
+        }
+        return template.render(player, renderNow, templateContext, true);
+    }
+
+    /**
+     * Renders any template (e.g. a self-greet) with this greeter's {online} / {joinsToday}.
+     */
+    public String render(GreetingTemplate template, String player, long now) {
+        return template.render(player, now, templateContext, false);
+    }
+
+    // Counter behind {joinsToday}, reset at local midnight
+    private void countJoin(long now) {
+        if (now >= nextMidnight) {
+            joinsToday = 0;
+            ZoneId zone = ZoneId.systemDefault();
+            LocalDate today = Instant.ofEpochMilli(now).atZone(zone).toLocalDate();
+            nextMidnight = today.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+        }
+        joinsToday++;
+        adaptive.onJoin(now);
+    }
+
+    private MessagePool<GreetingTemplate> messages() {
+        List<GreetingTemplate> welcomeMessages = config.get().messages();
+        if (welcomeMessages != messagePool.source()) {
+            // Messages were reloaded: start a rotation over the new list
+            messagePool = new MessagePool<>(welcomeMessages, NO_REPEAT);
+            DebugLog.log("Message pool rebuilt with {} messages.", welcomeMessages.size());
+        }
+        return messagePool;
+    }
+
+    private MessagePool<GreetingTemplate> firstJoinMessages() {
+        List<GreetingTemplate> firstJoin = config.get().firstJoinMessages();
+        if (firstJoin != firstJoinPool.source()) {
+            firstJoinPool = new MessagePool<>(firstJoin, NO_REPEAT);
+            DebugLog.log("First-join pool rebuilt with {} messages.", firstJoin.size());
+        }
+        return firstJoinPool;
+    }
+
+    // ----------------------------
+    // CONFIG
+    // ----------------------------
+    public ConfigSnapshot config() {
+        return config.get();
+    }
+
+    /**
+     * Swaps in a new snapshot. Safe from any thread.
+     */
+    public void publish(ConfigSnapshot snapshot) {
+        config.set(snapshot);
+    }
+
+    /**
+     * Atomically derives a new snapshot from the current one and returns it.
+     */
+    public ConfigSnapshot updateConfig(UnaryOperator<ConfigSnapshot> update) {
+        return config.updateAndGet(update);
+    }
+
+    public void setJoinDetector(JoinDetector joinDetector) {
+        updateConfig(c -> c.withJoinDetector(joinDetector));
+    }
+
+    public JoinDetector joinDetector() {
+        return config.get().joinDetector();
+    }
+
+    public void setMessages(List<GreetingTemplate> messages) {
+        updateConfig(c -> c.withMessages(messages));
+    }
+
+    public void setIgnore(IgnoreRules ignore) {
+        updateConfig(c -> c.withIgnore(ignore));
+    }
+
+    public Mode mode() {
+        return config.get().mode();
+    }
+
+    public void setMode(Mode mode) {
+        updateConfig(c -> c.withMode(mode));
+    }
+
+    // ----------------------------
+    // STATE
+    // ----------------------------
+
+    public void setSelfName(String selfName) {
+        this.selfName = selfName;
+    }
+
+    public void setOnlineCount(IntSupplier onlineCount) {
+        this.onlineCount = onlineCount;
+    }
+
+    public int joinsToday() {
+        return joinsToday;
+    }
+
+    public int messageQueueSize() {
+        return messagePool.remaining();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    // ----------------------------
+    // HISTORY
+    // ----------------------------
+
+    /**
+     * Attaches the server's history once it has loaded and merges its entries that are still
+     * inside the window into the cooldowns. Joins and greetings since connecting are kept:
+     * each player ends up with their latest greeting from either side. Null detaches it.
+     */
+    public void useHistory(GreetHistory history, List<GreetHistory.Entry> recent, long lastGlobal) {
+        this.history = history;
+        lastGlobalGreet = Math.max(lastGlobalGreet, lastGlobal);
+        if (recent.isEmpty()) return;
+        int[] ids = new int[recent.size()];
+        long[] greetedAt = new long[recent.size()];
+        for (int i = 0; i < ids.length; i++) {
+            GreetHistory.Entry e = recent.get(i);
+            ids[i] = presence.id(e.name(), e.greetedAt());
+            greetedAt[i] = e.greetedAt();
+        }
+        lastGreeted.merge(ids, greetedAt);
+    }
+
+    /**
+     * Forgets the server we left: presence, cooldowns and its history (disconnect).
+     */
+    public void leaveServer() {
+        history = null;
+        presence.clear();
+        lastGreeted.clear();
+        lastGlobalGreet = 0;
+    }
+
+    public GreetHistory history() {
+        return history;
+    }
+
+    /**
+     * Coordinates with other clients through these claims (null to stop).
+     */
+    public void useClaims(GreetClaims claims) {
+        this.claims = claims;
+    }
+
+    public GreetClaims claims() {
+        return claims;
+    }
+
+    /**
+     * Switches to another server's seen-players filter (null on disconnect).
+     */
+    public void useSeenPlayers(SeenPlayers seen) {
+        this.seen = seen;
+    }
+
+    public SeenPlayers seenPlayers() {
+        return seen;
+    }
+
+    /**
+     * The longest cooldown any mode uses; history older than this can never matter.
+     */
+    public static long longestCooldown() {
+        long max = 0;
+        for (Mode m : Mode.values()) max = Math.max(max, Math.max(m.perPlayerCooldown, m.globalCooldown));
+        return Math.max(max, ADAPTIVE_MAX_PLAYER_COOLDOWN);
+    }
+
+    /**
+     * Players still inside the per-player cooldown that applies right now. The table keeps
+     * records for longer (see lastGreeted), so its size would overstate this.
+     */
+    public int coolingDown(long now) {
+        return lastGreeted.countCooling(now, perPlayerCooldown(config.get(), now));
+    }
+
+    // The profile's cooldowns are the floor the join rate raises from in ADAPTIVE mode
+    private long perPlayerCooldown(ConfigSnapshot cfg, long now) {
+        if (cfg.mode() != Mode.ADAPTIVE) return cfg.perPlayerCooldown();
+        adaptive.update(now);
+        return Math.max(cfg.perPlayerCooldown(), adaptive.perPlayerCooldown());
+    }
+
+    public PresenceTracker presence() {
+        return presence;
+    }
+
+    /**
+     * ADAPTIVE mode's join rate and current cooldowns, refreshed for {@code now}.
+     */
+    public AdaptiveCooldowns adaptive(long now) {
+        adaptive.update(now);
+        return adaptive;
+    }
+
+    public void setAdaptiveBudget(int greetingsPerHour) {
+        adaptive.setBudget(greetingsPerHour);
+    }
+
+    public int adaptiveBudget() {
+        return adaptive.budget();
+    }
+
+    public CircuitBreaker breaker() {
+        return breaker;
+    }
+
+    /**
+     * Told about the server warning that tripped the breaker (client thread).
+     */
+    public void setFeedbackListener(Consumer<String> feedbackListener) {
+        this.feedbackListener = feedbackListener;
+    }
+
+    public ChatOutbox outbox() {
+        return outbox;
+    }
+
+    public Metrics metrics() {
+        return metrics;
+    }
+}
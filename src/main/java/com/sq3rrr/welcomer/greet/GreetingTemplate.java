@@ -0,0 +1,197 @@
+package com.sq3rrr.welcomer.greet;
+
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A welcome or self-greet message, compiled once at load time into literal text and placeholders.
+ *
+ * Placeholders:
+ * - {player}      the greeted player (your own name in self-greets); "%s" still works too
+ * - {time}        local time, HH:mm
+ * - {online}      players on the server right now
+ * - {joinsToday}  joins seen since local midnight
+ * "%%" is a literal %. Other %-formats ("%d") and unknown {names} are rejected by compile(),
+ * so a bad line fails when the file is loaded instead of when a greeting is sent.
+ *
+ * Rendering walks the segments once into a pre-sized StringBuilder; there is no format
+ * string parsing left at send time. Immutable; safe to share between threads.
+ */
+public final class GreetingTemplate {
+
+    /**
+     * Values that are only known at send time. Only asked for when the template uses them.
+     */
+    public interface Context {
+        int online();
+
+        int joinsToday();
+    }
+
+    public enum Placeholder {
+        PLAYER("player"), TIME("time"), ONLINE("online"), JOINS_TODAY("joinsToday");
+
+        final String key;
+
+        Placeholder(String key) {
+            this.key = key;
+        }
+
+        static Placeholder byKey(String key) {
+            for (Placeholder p : values()) {
+                if (p.key.equals(key)) return p;
+            }
+            return null;
+        }
+    }
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("HH:mm");
+
+    private final String source;
+    // Each entry is either a literal String or a Placeholder
+    private final Object[] segments;
+    private final int literalLength;
+    private final boolean hasPlayer;
+
+    private GreetingTemplate(String source, Object[] segments, int literalLength, boolean hasPlayer) {
+        this.source = source;
+        this.segments = segments;
+        this.literalLength = literalLength;
+        this.hasPlayer = hasPlayer;
+    }
+
+    /**
+     * Compiles one message line. Throws IllegalArgumentException with a readable reason for bad lines.
+     */
+    public static GreetingTemplate compile(String line) {
+        String s = line.trim();
+        if (s.isEmpty()) throw new IllegalArgumentException("empty message");
+
+        List<Object> segments = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int literalLength = 0;
+        boolean hasPlayer = false;
+
+        int i = 0;
+        while (i < s.length()) {
+            char c = s.charAt(i);
+            Placeholder p = null;
+            int next = i + 1;
+
+            if (c == '%' && i + 1 < s.length()) {
+                char f = s.charAt(i + 1);
+                if (f == 's') {
+                    p = Placeholder.PLAYER;
+                    next = i + 2;
+                } else if (f == '%') {
+                    literal.append('%');
+                    i += 2;
+                    continue;
+                } else if (Character.isLetter(f)) {
+                    throw new IllegalArgumentException("unsupported format %" + f + " (use {player}, or %% for a literal %)");
+                }
+            } else if (c == '{') {
+                int close = s.indexOf('}', i + 1);
+                String key = close < 0 ? null : s.substring(i + 1, close);
+                if (key != null && isIdentifier(key)) {
+                    p = Placeholder.byKey(key);
+                    if (p == null) throw new IllegalArgumentException("unknown placeholder {" + key + "}");
+                    next = close + 1;
+                }
+            }
+
+            if (p == null) {
+                literal.append(c);
+                i++;
+                continue;
+            }
+            if (!literal.isEmpty()) {
+                segments.add(literal.toString());
+                literalLength += literal.length();
+                literal.setLength(0);
+            }
+            segments.add(p);
+            hasPlayer |= p == Placeholder.PLAYER;
+            i = next;
+        }
+        if (!literal.isEmpty()) {
+            segments.add(literal.toString());
+            literalLength += literal.length();
+        }
+        return new GreetingTemplate(s, segments.toArray(), literalLength, hasPlayer);
+    }
+
+    /**
+     * Compiles every line. Throws IllegalArgumentException on the first bad one.
+     */
+    public static List<GreetingTemplate> compileAll(List<String> lines) {
+        List<GreetingTemplate> out = new ArrayList<>(lines.size());
+        for (String l : lines) out.add(compile(l));
+        return out;
+    }
+
+    private static boolean isIdentifier(String s) {
+        if (s.isEmpty()) return false;
+        for (int i = 0; i < s.length(); i++) {
+            if (!Character.isLetterOrDigit(s.charAt(i)) && s.charAt(i) != '_') return false;
+        }
+        return true;
+    }
+
+    /**
+     * Renders the message. Welcome messages without a player placeholder get the name
+     * appended, like before.
+     */
+    public String render(String player, long now, Context ctx, boolean appendPlayerIfMissing) {
+        // Resolve the variable parts first so the builder is sized exactly once
+        String[] values = new String[segments.length];
+        int length = literalLength;
+        for (int i = 0; i < segments.length; i++) {
+            if (segments[i] instanceof Placeholder p) {
+                values[i] = switch (p) {
+                    case PLAYER -> player == null ? "" : player;
+                    case TIME -> TIME_FORMAT.format(LocalTime.ofInstant(Instant.ofEpochMilli(now), ZoneId.systemDefault()));
+                    case ONLINE -> Integer.toString(ctx.online());
+                    case JOINS_TODAY -> Integer.toString(ctx.joinsToday());
+                };
+                length += values[i].length();
+            }
+        }
+        boolean append = appendPlayerIfMissing && !hasPlayer;
+        if (append) length += 1 + player.length();
+
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < segments.length; i++) {
+            sb.append(values[i] != null ? values[i] : (String) segments[i]);
+        }
+        if (append) sb.append(' ').append(player);
+        return sb.toString();
+    }
+
+    public boolean hasPlayer() {
+        return hasPlayer;
+    }
+
+    public String source() {
+        return source;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof GreetingTemplate other && source.equals(other.source);
+    }
+
+    @Override
+    public int hashCode() {
+        return source.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+}
@@ -0,0 +1,80 @@
+package com.sq3rrr.welcomer.greet;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Random rotation over a message list: every message once per pass, in a new order each pass.
+ *
+ * The pool keeps the (immutable) list it was built from plus one int index per message.
+ * Each draw is one step of an in-place Fisher–Yates shuffle: pick a random slot from the
+ * part not drawn yet, swap it to the cursor, advance. When the pass ends the cursor just
+ * wraps, so there is no copy, reshuffle or disk access at a refill, and a draw is O(1)
+ * however big the message file is.
+ *
+ * The last {@code noRepeat} messages of a pass sit at the end of the index array. The first
+ * draws of the next pass leave the ones that are still too recent out of the random range,
+ * so a message never comes back within {@code noRepeat} draws, pass boundary or not.
+ *
+ * Not thread-safe.
+ */
+public final class MessagePool<T> {
+
+    private final List<T> items;
+    private final int[] order;
+    private final int noRepeat;
+    private final Random random;
+    private int cursor = 0;
+    private boolean firstPass = true;
+
+    public MessagePool(List<T> items, int noRepeat) {
+        this(items, noRepeat, new Random());
+    }
+
+    public MessagePool(List<T> items, int noRepeat, Random random) {
+        this.items = items;
+        this.order = new int[items.size()];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        this.noRepeat = Math.max(0, Math.min(noRepeat, order.length - 1));
+        this.random = random;
+    }
+
+    /**
+     * Next message, or null if the list is empty.
+     */
+    public T next() {
+        int n = order.length;
+        if (n == 0) return null;
+        if (cursor == n) {
+            cursor = 0;
+            firstPass = false;
+        }
+
+        // Slots [n - noRepeat + cursor, n) still hold messages drawn too recently
+        int end = !firstPass && cursor < noRepeat ? n - noRepeat + cursor : n;
+        int pick = cursor + random.nextInt(end - cursor);
+        int index = order[pick];
+        order[pick] = order[cursor];
+        order[cursor] = index;
+        cursor++;
+        return items.get(index);
+    }
+
+    /**
+     * Messages left before the current pass ends.
+     */
+    public int remaining() {
+        return order.length - cursor;
+    }
+
+    public int size() {
+        return order.length;
+    }
+
+    /**
+     * The list this pool draws from, to notice when config hands out a new one.
+     */
+    public List<T> source() {
+        return items;
+    }
+}
@@ -0,0 +1,23 @@
+package com.sq3rrr.welcomer.greet;
+
+/**
+ * Server mode presets.
+ * - DEFAULT: only per-player cooldown matters (global ignored).
+ * - CONSTANTIAM: global cooldown checked first, then per-player cooldown.
+ * - HYPERSAFE: same as CONSTANTIAM but with longer cooldowns.
+ * - ADAPTIVE: cooldowns follow the join rate (see AdaptiveCooldowns); the presets (or a profile's cooldowns) are the quiet-server values.
+ */
+public enum Mode {
+    CONSTANTIAM(5 * 60 * 1000L, 5 * 60 * 1000L),  // 5 min per player, 5 min global
+    DEFAULT(5 * 60 * 1000L, 0),                   // 5 min per player, global ignored
+    HYPERSAFE(10 * 60 * 1000L, 10 * 60 * 1000L),  // 10 min per player, 10 min global
+    ADAPTIVE(5 * 60 * 1000L, 0);                   // at least 5 min per player, global from join rate
+
+    public final long perPlayerCooldown;
+    public final long globalCooldown;
+
+    Mode(long perPlayerCooldown, long globalCooldown) {
+        this.perPlayerCooldown = perPlayerCooldown;
+        this.globalCooldown = globalCooldown;
+    }
+}
@@ -0,0 +1,43 @@
+package com.sq3rrr.welcomer.greet;
+
+/**
+ * Classic token bucket: holds up to {@code capacity} sends and earns one back every {@code intervalMs}.
+ *
+ * Tokens are kept as milliseconds of credit so refills stay exact with integer math.
+ * Time is passed in by the caller, which keeps the bucket usable with a virtual clock.
+ */
+public final class TokenBucket {
+
+    private final long intervalMs;
+    private final long maxCredit;
+    private long credit;
+    private long lastRefill;
+
+    public TokenBucket(int capacity, long intervalMs, long now) {
+        if (capacity < 1) throw new IllegalArgumentException("capacity must be >= 1");
+        if (intervalMs < 1) throw new IllegalArgumentException("intervalMs must be >= 1");
+        this.intervalMs = intervalMs;
+        this.maxCredit = capacity * intervalMs;
+        this.credit = maxCredit; // start full
+        this.lastRefill = now;
+    }
+
+    public boolean tryTake(long now) {
+        refill(now);
+        if (credit < intervalMs) return false;
+        credit -= intervalMs;
+        return true;
+    }
+
+    public int available(long now) {
+        refill(now);
+        return (int) (credit / intervalMs);
+    }
+
+    private void refill(long now) {
+        long elapsed = now - lastRefill;
+        if (elapsed <= 0) return;
+        credit = Math.min(maxCredit, credit + elapsed);
+        lastRefill = now;
+    }
+}
@@ -0,0 +1,188 @@
+package com.sq3rrr.welcomer.history;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Greeting claims for one server shared by every client on this machine, so that when
+ * several accounts sit on the same server only one of them greets each join.
+ *
+ * All clients map the same file and update it with compare-and-set on the mapped memory,
+ * which the OS shares between processes: no lock file, no network service. The file is a
+ * fixed hash table of 8-byte words behind a 64-byte header:
+ *
+ *   header:  magic + version, global claim (expiry in ms)
+ *   slot:    name fingerprint (32 bits) | claim expiry in epoch seconds (32 bits), 0 = never used
+ *
+ * A claim scans the name's probe chain: a live word with the same fingerprint means another
+ * client (or this one) already greets that player, otherwise the first empty or expired slot
+ * is taken with one CAS. Two clients racing for the same join both pick the same first free
+ * slot, so only one CAS succeeds and the loser rescans and finds the winner's claim. Every
+ * claim carries its own expiry, so claims of a crashed client simply run out; a client whose
+ * greeting never went out releases its claim early.
+ *
+ * Lock-free and allocation-free; safe from any thread and any process.
+ */
+public final class GreetClaims implements AutoCloseable {
+
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private static final int MAGIC = 0x574C434C; // "WLCL"
+    private static final int VERSION = 1;
+    private static final long MAGIC_WORD = (long) VERSION << 32 | MAGIC;
+    private static final int HEADER_BYTES = 64;
+    private static final int SLOTS = 8192; // 64 KB
+    private static final int MAX_PROBE = 16;
+
+    // Header offsets
+    private static final int OFF_MAGIC = 0;
+    private static final int OFF_GLOBAL = 8;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer map;
+
+    private GreetClaims(FileChannel channel, MappedByteBuffer map) {
+        this.channel = channel;
+        this.map = map;
+    }
+
+    /**
+     * Opens the claims file, creating it if this is the first client. A file that isn't a
+     * claims file of this version is left alone for whoever is using it, and refused.
+     */
+    public static GreetClaims open(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long size = HEADER_BYTES + (long) SLOTS * 8;
+            long existing = channel.size();
+            if (existing != 0 && existing != size) throw new IOException("Unexpected size " + existing + ", delete the file to start over");
+
+            // Mapping past the end grows the file with zeros, also when another client does it at the same time
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            long magic = (long) LONGS.getVolatile(map, OFF_MAGIC);
+            if (magic == 0 && !LONGS.compareAndSet(map, OFF_MAGIC, 0L, MAGIC_WORD)) {
+                magic = (long) LONGS.getVolatile(map, OFF_MAGIC);
+            }
+            if (magic != 0 && magic != MAGIC_WORD) throw new IOException("Not a claims file of this version");
+            return new GreetClaims(channel, map);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Claims the greeting for a join. Returns false if another client holds the player (or,
+     * with {@code globalTtl} > 0, the global cooldown); on true this client must greet and
+     * everyone else backs off for {@code playerTtl} / {@code globalTtl}.
+     */
+    public boolean claim(String name, long now, long playerTtl, long globalTtl) {
+        long previousGlobal = 0;
+        long global = 0;
+        if (globalTtl > 0) {
+            global = now + globalTtl;
+            do {
+                previousGlobal = (long) LONGS.getVolatile(map, OFF_GLOBAL);
+                if (now < previousGlobal) return false;
+            } while (!LONGS.compareAndSet(map, OFF_GLOBAL, previousGlobal, global));
+        }
+
+        if (claimPlayer(name, now, playerTtl)) return true;
+
+        // Someone else greets this player: hand the global window back unless it moved on
+        if (globalTtl > 0) LONGS.compareAndSet(map, OFF_GLOBAL, global, previousGlobal);
+        return false;
+    }
+
+    private boolean claimPlayer(String name, long now, long ttl) {
+        long h = SeenPlayers.hash(name);
+        long fingerprint = h >>> 32;
+        if (fingerprint == 0) fingerprint = 1;
+        long nowSec = now / 1000;
+        long expiry = nowSec + Math.max(1, (ttl + 999) / 1000);
+        long mine = fingerprint << 32 | (expiry & 0xFFFFFFFFL);
+        int home = (int) h & (SLOTS - 1);
+
+        while (true) {
+            int free = -1;
+            long freeWord = 0;
+            for (int i = 0; i < MAX_PROBE; i++) {
+                int at = HEADER_BYTES + ((home + i) & (SLOTS - 1)) * 8;
+                long word = (long) LONGS.getVolatile(map, at);
+                if (word == 0) {
+                    // End of the chain, nothing past here was ever claimed
+                    if (free < 0) {
+                        free = at;
+                        freeWord = 0;
+                    }
+                    break;
+                }
+                boolean live = (word & 0xFFFFFFFFL) > nowSec;
+                if (live && word >>> 32 == fingerprint) return false;
+                if (!live && free < 0) {
+                    free = at;
+                    freeWord = word;
+                }
+            }
+            // Chain full of live claims: greet rather than stay silent
+            if (free < 0) return true;
+            if (LONGS.compareAndSet(map, free, freeWord, mine)) return true;
+            // Lost a race for that slot, look again
+        }
+    }
+
+    /**
+     * Gives back a claim made at {@code claimedAt} whose greeting was never sent, so another
+     * client (or this one) can greet the player. {@code globalUntil} is the global claim's
+     * expiry, 0 if it took none; it is only reset while nobody has claimed past it.
+     */
+    public void release(String name, long claimedAt, long globalUntil) {
+        if (globalUntil > 0) LONGS.compareAndSet(map, OFF_GLOBAL, globalUntil, 0L);
+
+        long h = SeenPlayers.hash(name);
+        long fingerprint = h >>> 32;
+        if (fingerprint == 0) fingerprint = 1;
+        long claimedSec = claimedAt / 1000;
+        int home = (int) h & (SLOTS - 1);
+        for (int i = 0; i < MAX_PROBE; i++) {
+            int at = HEADER_BYTES + ((home + i) & (SLOTS - 1)) * 8;
+            long word = (long) LONGS.getVolatile(map, at);
+            if (word == 0) return;
+            // Our claim was the only live one for this player; expire it but keep the slot non-zero
+            // so the probe chains running through it stay intact
+            if (word >>> 32 == fingerprint && (word & 0xFFFFFFFFL) > claimedSec) {
+                LONGS.compareAndSet(map, at, word, fingerprint << 32);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Live player claims, for the status line. Scans the table.
+     */
+    public int live(long now) {
+        long nowSec = now / 1000;
+        int n = 0;
+        for (int i = 0; i < SLOTS; i++) {
+            long word = (long) LONGS.getVolatile(map, HEADER_BYTES + i * 8);
+            if (word != 0 && (word & 0xFFFFFFFFL) > nowSec) n++;
+        }
+        return n;
+    }
+
+    /**
+     * Closes the file. Claims stay in place for the other clients until they expire.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,176 @@
+package com.sq3rrr.welcomer.history;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Who was greeted when on one server, kept on disk so cooldowns survive reconnects and restarts.
+ *
+ * The file is a memory-mapped ring of fixed 32-byte records behind a 64-byte header:
+ *
+ *   header:  magic, version, capacity, head (next slot), count, lastGlobal, lastSelf
+ *   record:  greetedAt (8 bytes), name length (1), name (up to 23 bytes UTF-8)
+ *
+ * Appending is a handful of stores into the mapping; the OS writes the pages back, so
+ * nothing on the client thread waits for the disk. Records are written in time order, so
+ * loading walks backwards from the newest and stops at the first record older than the
+ * window: cost is proportional to the greetings still cooling down, not the file size.
+ * The ring overwrites the oldest records once full, which keeps the file at a fixed size.
+ * The reload is therefore bounded by the capacity as well as by age: a server with more
+ * greetings than that within the window has pushed the older ones out, and those players
+ * can be greeted again after a reconnect.
+ *
+ * The client thread appends and updates the header (greetings and self-greets); the
+ * scheduler thread opens and reads the file before handing it over, and closes it only
+ * after the client thread has let go of it. Methods stay synchronized for that hand-over.
+ */
+public final class GreetHistory implements AutoCloseable {
+
+    public record Entry(String name, long greetedAt) {
+    }
+
+    private static final int MAGIC = 0x574C4348; // "WLCH"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+    private static final int RECORD_BYTES = 32;
+    private static final int MAX_NAME_BYTES = RECORD_BYTES - 9;
+
+    // Header offsets
+    private static final int OFF_MAGIC = 0;
+    private static final int OFF_VERSION = 4;
+    private static final int OFF_CAPACITY = 8;
+    private static final int OFF_HEAD = 12;
+    private static final int OFF_COUNT = 16;
+    private static final int OFF_LAST_GLOBAL = 24;
+    private static final int OFF_LAST_SELF = 32;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer map;
+    private final int capacity;
+    private final byte[] nameBuffer = new byte[MAX_NAME_BYTES];
+
+    private GreetHistory(FileChannel channel, MappedByteBuffer map, int capacity) {
+        this.channel = channel;
+        this.map = map;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Opens (or creates) the history file. A file with a foreign header or a different
+     * capacity is started over rather than misread.
+     */
+    public static GreetHistory open(Path file, int capacity) throws IOException {
+        Files.createDirectories(file.getParent());
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long size = HEADER_BYTES + (long) capacity * RECORD_BYTES;
+            boolean fresh = channel.size() != size;
+            if (fresh) channel.truncate(0);
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            map.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (fresh || map.getInt(OFF_MAGIC) != MAGIC || map.getInt(OFF_VERSION) != VERSION
+                    || map.getInt(OFF_CAPACITY) != capacity) {
+                for (int i = 0; i < HEADER_BYTES; i += 8) map.putLong(i, 0L);
+                map.putInt(OFF_MAGIC, MAGIC);
+                map.putInt(OFF_VERSION, VERSION);
+                map.putInt(OFF_CAPACITY, capacity);
+            }
+            return new GreetHistory(channel, map, capacity);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Appends a greeting. Names longer than a record holds are not stored.
+     */
+    public synchronized void append(String name, long greetedAt) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length == 0 || bytes.length > MAX_NAME_BYTES) return;
+
+        int head = map.getInt(OFF_HEAD);
+        int at = HEADER_BYTES + head * RECORD_BYTES;
+        map.putLong(at, greetedAt);
+        map.put(at + 8, (byte) bytes.length);
+        map.put(at + 9, bytes, 0, bytes.length);
+
+        // Record first, then publish it by moving head
+        map.putInt(OFF_HEAD, (head + 1) % capacity);
+        map.putInt(OFF_COUNT, Math.min(capacity, map.getInt(OFF_COUNT) + 1));
+    }
+
+    /**
+     * Greetings newer than {@code now - maxAge}, oldest first.
+     */
+    public synchronized List<Entry> recent(long now, long maxAge) {
+        List<Entry> out = new ArrayList<>();
+        int count = map.getInt(OFF_COUNT);
+        int slot = map.getInt(OFF_HEAD);
+        for (int n = 0; n < count; n++) {
+            slot = (slot - 1 + capacity) % capacity;
+            int at = HEADER_BYTES + slot * RECORD_BYTES;
+            long greetedAt = map.getLong(at);
+            if (now - greetedAt >= maxAge) break;
+
+            int len = map.get(at + 8) & 0xFF;
+            if (len == 0 || len > MAX_NAME_BYTES) continue;
+            map.get(at + 9, nameBuffer, 0, len);
+            out.add(new Entry(new String(nameBuffer, 0, len, StandardCharsets.UTF_8), greetedAt));
+        }
+        Collections.reverse(out);
+        return out;
+    }
+
+    public synchronized long lastGlobal() {
+        return map.getLong(OFF_LAST_GLOBAL);
+    }
+
+    public synchronized void setLastGlobal(long at) {
+        map.putLong(OFF_LAST_GLOBAL, at);
+    }
+
+    public synchronized long lastSelf() {
+        return map.getLong(OFF_LAST_SELF);
+    }
+
+    public synchronized void setLastSelf(long at) {
+        map.putLong(OFF_LAST_SELF, at);
+    }
+
+    public synchronized int size() {
+        return map.getInt(OFF_COUNT);
+    }
+
+    /**
+     * Flushes the mapping and closes the file. Blocks on the disk, call off the client thread.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        map.force();
+        channel.close();
+    }
+
+    /**
+     * File-system safe folder name for a server address ("play.example.net:25565" -> "play.example.net_25565").
+     */
+    public static String serverKey(String address) {
+        if (address == null || address.isBlank()) return "local";
+        StringBuilder sb = new StringBuilder(address.length());
+        for (char c : address.trim().toLowerCase(Locale.ROOT).toCharArray()) {
+            sb.append((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '.' || c == '-' ? c : '_');
+        }
+        return sb.toString();
+    }
+}
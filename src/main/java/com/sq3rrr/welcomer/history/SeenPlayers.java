@@ -0,0 +1,193 @@
+package com.sq3rrr.welcomer.history;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Every player ever seen joining one server, as a memory-mapped Bloom filter.
+ *
+ * An exact set of names would grow for as long as the server runs. The filter instead
+ * has a size fixed up front by the expected number of players n and the false positive
+ * rate p: m = -n ln p / (ln 2)^2 bits and k = m/n ln 2 hash functions (about 1.2 MB and
+ * 7 hashes for a million players at 1%). "Not seen" is always right; "seen" is wrong with
+ * probability p, i.e. a few new players get the normal greeting instead of the first-join
+ * one. Past n players the rate creeps up (falsePositiveRate() has the current estimate),
+ * but the file never grows.
+ *
+ *   header:  magic, version, k, bits, expected players, target rate, insertions
+ *   body:    the bit array as longs
+ *
+ * A lookup hashes the name once (case-insensitive, no allocation) and derives the k bit
+ * positions from two halves of that hash. A file made for other settings is started over.
+ *
+ * Methods are synchronized like GreetHistory: the client thread adds, the scheduler
+ * thread opens and closes once the client thread has let go.
+ */
+public final class SeenPlayers implements AutoCloseable {
+
+    private static final int MAGIC = 0x574C4353; // "WLCS"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+
+    // Mappings are limited to 2 GB; 256 MB is ~200 million players at 1%
+    private static final long MAX_BITS = 256L * 1024 * 1024 * 8;
+
+    // Header offsets
+    private static final int OFF_MAGIC = 0;
+    private static final int OFF_VERSION = 4;
+    private static final int OFF_HASHES = 8;
+    private static final int OFF_BITS = 16;
+    private static final int OFF_EXPECTED = 24;
+    private static final int OFF_RATE = 32;
+    private static final int OFF_COUNT = 40;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer map;
+    private final long bits;
+    private final int hashes;
+
+    private SeenPlayers(FileChannel channel, MappedByteBuffer map, long bits, int hashes) {
+        this.channel = channel;
+        this.map = map;
+        this.bits = bits;
+        this.hashes = hashes;
+    }
+
+    /**
+     * Opens (or creates) the filter file sized for {@code expectedPlayers} at {@code falsePositiveRate}.
+     */
+    public static SeenPlayers open(Path file, long expectedPlayers, double falsePositiveRate) throws IOException {
+        if (expectedPlayers <= 0) throw new IllegalArgumentException("expectedPlayers must be positive");
+        if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) throw new IllegalArgumentException("falsePositiveRate must be between 0 and 1");
+        long bits = bitsFor(expectedPlayers, falsePositiveRate);
+        int hashes = hashesFor(expectedPlayers, bits);
+
+        Files.createDirectories(file.getParent());
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long size = HEADER_BYTES + bits / 8;
+            boolean fresh = channel.size() != size;
+            if (fresh) channel.truncate(0);
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            map.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (fresh || map.getInt(OFF_MAGIC) != MAGIC || map.getInt(OFF_VERSION) != VERSION
+                    || map.getInt(OFF_HASHES) != hashes || map.getLong(OFF_BITS) != bits
+                    || map.getLong(OFF_EXPECTED) != expectedPlayers || map.getDouble(OFF_RATE) != falsePositiveRate) {
+                for (long at = 0; at < size; at += 8) map.putLong((int) at, 0L);
+                map.putInt(OFF_MAGIC, MAGIC);
+                map.putInt(OFF_VERSION, VERSION);
+                map.putInt(OFF_HASHES, hashes);
+                map.putLong(OFF_BITS, bits);
+                map.putLong(OFF_EXPECTED, expectedPlayers);
+                map.putDouble(OFF_RATE, falsePositiveRate);
+            }
+            return new SeenPlayers(channel, map, bits, hashes);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Bits needed for n players at rate p, rounded up to whole longs.
+     */
+    public static long bitsFor(long expectedPlayers, double falsePositiveRate) {
+        double m = -expectedPlayers * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+        long bits = ((long) Math.ceil(m) + 63) & ~63L;
+        return Math.max(64, Math.min(bits, MAX_BITS));
+    }
+
+    private static int hashesFor(long expectedPlayers, long bits) {
+        long k = Math.round((double) bits / expectedPlayers * Math.log(2));
+        return (int) Math.max(1, Math.min(k, 30));
+    }
+
+    /**
+     * Marks the player as seen. Returns true if they (probably) weren't before.
+     */
+    public synchronized boolean add(String name) {
+        long h = hash(name);
+        long h1 = h;
+        long h2 = mix(h ^ 0x9E3779B97F4A7C15L) | 1;
+        boolean added = false;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bits);
+            int at = HEADER_BYTES + (int) (bit >>> 6) * 8;
+            long word = map.getLong(at);
+            long mask = 1L << bit;
+            if ((word & mask) == 0) {
+                map.putLong(at, word | mask);
+                added = true;
+            }
+        }
+        if (added) map.putLong(OFF_COUNT, map.getLong(OFF_COUNT) + 1);
+        return added;
+    }
+
+    public synchronized boolean mightContain(String name) {
+        long h = hash(name);
+        long h1 = h;
+        long h2 = mix(h ^ 0x9E3779B97F4A7C15L) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bits);
+            if ((map.getLong(HEADER_BYTES + (int) (bit >>> 6) * 8) & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Players added so far (new ones that collided with a full set of bits aren't counted).
+     */
+    public synchronized long count() {
+        return map.getLong(OFF_COUNT);
+    }
+
+    /**
+     * Expected false positive rate at the current fill: (1 - e^(-k n / m))^k.
+     */
+    public synchronized double falsePositiveRate() {
+        return Math.pow(1 - Math.exp(-(double) hashes * map.getLong(OFF_COUNT) / bits), hashes);
+    }
+
+    /**
+     * Size of the file and the mapping.
+     */
+    public long sizeBytes() {
+        return HEADER_BYTES + bits / 8;
+    }
+
+    /**
+     * Flushes the mapping and closes the file. Blocks on the disk, call off the client thread.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        map.force();
+        channel.close();
+    }
+
+    // FNV-1a over the lower-cased chars, then a 64-bit finalizer so every bit depends on every char.
+    // Also keys GreetClaims.
+    static long hash(String name) {
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0; i < name.length(); i++) {
+            h ^= Character.toLowerCase(name.charAt(i));
+            h *= 0x100000001B3L;
+        }
+        return mix(h);
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
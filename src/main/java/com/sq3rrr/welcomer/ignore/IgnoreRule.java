@@ -0,0 +1,123 @@
+package com.sq3rrr.welcomer.ignore;
+
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * One ignore rule, parsed from a line of welcomer_ignore.txt. All rules are case-insensitive.
+ *
+ * - Names:     "Steve"            (plain names, the old file format)
+ * - Prefixes:  "Bot_*"            ignores Bot_1, Bot_123, ...
+ * - Suffixes:  "*_alt"            ignores Steve_alt, ...
+ * - Globs:     "*bot*", "a*b"     any other use of *, turned into a regex
+ * - Regexes:   "regex:^[a-z]{2}\d{4}$"   must match the whole name
+ */
+public final class IgnoreRule {
+
+    public static final String REGEX_PREFIX = "regex:";
+    public static final char WILDCARD = '*';
+
+    public enum Kind { NAME, PREFIX, SUFFIX, PATTERN }
+
+    private final String source;
+    private final Kind kind;
+    private final String literal;
+    private final Pattern pattern;
+
+    private IgnoreRule(String source, Kind kind, String literal, Pattern pattern) {
+        this.source = source;
+        this.kind = kind;
+        this.literal = literal;
+        this.pattern = pattern;
+    }
+
+    /**
+     * Parses one config line. Throws IllegalArgumentException with a readable reason for bad lines.
+     */
+    public static IgnoreRule parse(String line) {
+        String s = line.trim();
+        if (s.isEmpty()) throw new IllegalArgumentException("empty rule");
+
+        if (s.startsWith(REGEX_PREFIX)) {
+            String expr = s.substring(REGEX_PREFIX.length()).trim();
+            if (expr.isEmpty()) throw new IllegalArgumentException("empty regex");
+            return new IgnoreRule(s, Kind.PATTERN, null, compile(expr));
+        }
+
+        int first = s.indexOf(WILDCARD);
+        if (first < 0) return new IgnoreRule(s, Kind.NAME, s, null);
+
+        int last = s.lastIndexOf(WILDCARD);
+        if (s.chars().allMatch(c -> c == WILDCARD)) {
+            throw new IllegalArgumentException("rule would ignore everyone");
+        }
+        if (first == last && last == s.length() - 1) {
+            return new IgnoreRule(s, Kind.PREFIX, s.substring(0, last), null);
+        }
+        if (first == last && first == 0) {
+            return new IgnoreRule(s, Kind.SUFFIX, s.substring(1), null);
+        }
+        return new IgnoreRule(s, Kind.PATTERN, null, compile(globToRegex(s)));
+    }
+
+    private static Pattern compile(String expr) {
+        try {
+            return Pattern.compile(expr, Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+        } catch (PatternSyntaxException e) {
+            throw new IllegalArgumentException("invalid regex: " + e.getDescription());
+        }
+    }
+
+    static String globToRegex(String glob) {
+        StringBuilder sb = new StringBuilder(glob.length() + 16);
+        int from = 0;
+        for (int i = 0; i < glob.length(); i++) {
+            if (glob.charAt(i) != WILDCARD) continue;
+            if (i > from) sb.append(Pattern.quote(glob.substring(from, i)));
+            sb.append(".*");
+            from = i + 1;
+        }
+        if (from < glob.length()) sb.append(Pattern.quote(glob.substring(from)));
+        return sb.toString();
+    }
+
+    public Kind kind() {
+        return kind;
+    }
+
+    /**
+     * The name, prefix or suffix for NAME / PREFIX / SUFFIX rules, otherwise null.
+     */
+    public String literal() {
+        return literal;
+    }
+
+    /**
+     * The compiled (case-insensitive) pattern for PATTERN rules, otherwise null.
+     */
+    public Pattern pattern() {
+        return pattern;
+    }
+
+    public String source() {
+        return source;
+    }
+
+    /**
+     * Slow, standalone check of this one rule. IgnoreRules is the fast path.
+     */
+    public boolean matches(String name) {
+        return switch (kind) {
+            case NAME -> name.equalsIgnoreCase(literal);
+            case PREFIX -> name.regionMatches(true, 0, literal, 0, literal.length());
+            case SUFFIX -> name.length() >= literal.length()
+                    && name.regionMatches(true, name.length() - literal.length(), literal, 0, literal.length());
+            case PATTERN -> pattern.matcher(name).matches();
+        };
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+}
@@ -0,0 +1,292 @@
+package com.sq3rrr.welcomer.ignore;
+
+import com.sq3rrr.welcomer.WelcomerMod;
+
+import java.util.*;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * The whole ignore list compiled into one case-insensitive matcher.
+ *
+ * - Plain names go into an open-addressing table hashed on case-folded chars,
+ *   so a lookup neither lowercases nor allocates.
+ * - Prefix rules ("Bot_*") share one trie, suffix rules ("*_alt") another one walked
+ *   from the end of the name. Both cost at most one step per character of the name.
+ * - Globs and regexes are combined into a single alternation and only run when present.
+ *
+ * Lookup cost therefore depends on the name length, not on how many rules there are.
+ * Immutable: with()/without() build a new instance, which is fine since the list only
+ * changes on a command or file reload. Safe to share between threads.
+ */
+public final class IgnoreRules {
+
+    public static final IgnoreRules EMPTY = new IgnoreRules(List.of());
+
+    // Groups by number or name change meaning inside the combination; in a user regex, \Q quoting
+    // and # comments under (?x) can also run past the wrapping group's closing paren
+    private static final Pattern GROUP_REFERENCES = Pattern.compile("\\\\[1-9]|\\\\k<|\\(\\?<[A-Za-z]");
+    private static final Pattern RUNS_PAST_GROUP = Pattern.compile("\\\\[QE]|\\(\\?[a-zA-Z-]*x");
+
+    // Sorted, one rule per (case-insensitive) source line
+    private final List<IgnoreRule> rules;
+
+    private final IgnoreRule[] names;
+    private final int namesMask;
+    private final Trie prefixes;
+    private final Trie suffixes;
+    private final Pattern combined;
+    private final IgnoreRule[] patterns;
+
+    public IgnoreRules(Collection<IgnoreRule> rules) {
+        Map<String, IgnoreRule> unique = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (IgnoreRule r : rules) unique.putIfAbsent(r.source(), r);
+        this.rules = List.copyOf(unique.values());
+
+        List<IgnoreRule> nameRules = new ArrayList<>();
+        List<IgnoreRule> patternRules = new ArrayList<>();
+        Trie.Builder prefixBuilder = new Trie.Builder(false);
+        Trie.Builder suffixBuilder = new Trie.Builder(true);
+        for (IgnoreRule r : this.rules) {
+            switch (r.kind()) {
+                case NAME -> nameRules.add(r);
+                case PREFIX -> prefixBuilder.add(r);
+                case SUFFIX -> suffixBuilder.add(r);
+                case PATTERN -> patternRules.add(r);
+            }
+        }
+
+        // Load factor <= 0.5 keeps probe chains short
+        int capacity = Integer.highestOneBit(Math.max(2, nameRules.size() * 2 - 1)) << 1;
+        this.names = new IgnoreRule[capacity];
+        this.namesMask = capacity - 1;
+        for (IgnoreRule r : nameRules) {
+            int i = foldedHash(r.literal()) & namesMask;
+            while (names[i] != null) i = (i + 1) & namesMask;
+            names[i] = r;
+        }
+
+        this.prefixes = prefixBuilder.build();
+        this.suffixes = suffixBuilder.build();
+        this.patterns = patternRules.toArray(new IgnoreRule[0]);
+        this.combined = combine(patternRules);
+    }
+
+    /**
+     * Parses every line. Throws IllegalArgumentException on the first bad one.
+     */
+    public static IgnoreRules of(Collection<String> lines) {
+        List<IgnoreRule> parsed = new ArrayList<>(lines.size());
+        for (String l : lines) parsed.add(IgnoreRule.parse(l));
+        return new IgnoreRules(parsed);
+    }
+
+    /**
+     * True if any rule ignores this player.
+     */
+    public boolean matches(String name) {
+        if (findName(name) != null) return true;
+        if (prefixes.find(name) != null || suffixes.find(name) != null) return true;
+        if (combined != null) return combined.matcher(name).matches();
+        for (IgnoreRule r : patterns) {
+            if (r.matches(name)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * The first rule that ignores this player, or null. Used for command feedback, not the hot path.
+     */
+    public IgnoreRule matchingRule(String name) {
+        IgnoreRule r = findName(name);
+        if (r == null) r = prefixes.find(name);
+        if (r == null) r = suffixes.find(name);
+        if (r == null) {
+            for (IgnoreRule p : patterns) {
+                if (p.matches(name)) return p;
+            }
+        }
+        return r;
+    }
+
+    public IgnoreRules with(IgnoreRule rule) {
+        List<IgnoreRule> next = new ArrayList<>(rules);
+        next.add(rule);
+        return new IgnoreRules(next);
+    }
+
+    /**
+     * Removes the rule with this exact source line (ignoring case). Returns this if there was none.
+     */
+    public IgnoreRules without(String source) {
+        List<IgnoreRule> next = new ArrayList<>(rules.size());
+        for (IgnoreRule r : rules) {
+            if (!r.source().equalsIgnoreCase(source.trim())) next.add(r);
+        }
+        return next.size() == rules.size() ? this : new IgnoreRules(next);
+    }
+
+    public List<IgnoreRule> rules() {
+        return rules;
+    }
+
+    /**
+     * Source lines in file order (sorted), for saving.
+     */
+    public List<String> sources() {
+        List<String> out = new ArrayList<>(rules.size());
+        for (IgnoreRule r : rules) out.add(r.source());
+        return out;
+    }
+
+    public int size() {
+        return rules.size();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof IgnoreRules other && sources().equals(other.sources());
+    }
+
+    @Override
+    public int hashCode() {
+        return sources().hashCode();
+    }
+
+    // ----------------------------
+    // MATCHERS
+    // ----------------------------
+    private IgnoreRule findName(String name) {
+        int i = foldedHash(name) & namesMask;
+        IgnoreRule r;
+        while ((r = names[i]) != null) {
+            if (r.literal().equalsIgnoreCase(name)) return r;
+            i = (i + 1) & namesMask;
+        }
+        return null;
+    }
+
+    // Same folding as String.CASE_INSENSITIVE_ORDER, so it agrees with equalsIgnoreCase
+    static char fold(char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    private static int foldedHash(String s) {
+        int h = 0;
+        for (int i = 0; i < s.length(); i++) h = 31 * h + fold(s.charAt(i));
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * One alternation for all glob/regex rules, each in its own group. Falls back to checking
+     * them one by one if a rule could not keep to its group (see GROUP_REFERENCES and
+     * RUNS_PAST_GROUP) or the combination fails to compile.
+     */
+    private static Pattern combine(List<IgnoreRule> rules) {
+        if (rules.isEmpty()) return null;
+        StringBuilder sb = new StringBuilder();
+        for (IgnoreRule r : rules) {
+            String expr = r.pattern().pattern();
+            if (GROUP_REFERENCES.matcher(expr).find()) return null;
+            // Globs are quoted by us and always close their \Q
+            if (r.source().startsWith(IgnoreRule.REGEX_PREFIX) && RUNS_PAST_GROUP.matcher(expr).find()) return null;
+            if (!sb.isEmpty()) sb.append('|');
+            sb.append("(?:").append(expr).append(')');
+        }
+        try {
+            return Pattern.compile(sb.toString(), Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE);
+        } catch (PatternSyntaxException e) {
+            WelcomerMod.LOGGER.warn("[Welcomer] Ignore patterns don't combine ({}), checking them one by one", e.getDescription());
+            return null;
+        }
+    }
+
+    /**
+     * Case-folded char trie, frozen into arrays. A reversed trie is built from and walked
+     * over the end of the string, for suffix rules.
+     */
+    private static final class Trie {
+        private final boolean reversed;
+        private final char[][] labels;
+        private final int[][] children;
+        private final IgnoreRule[] terminal;
+
+        private Trie(boolean reversed, char[][] labels, int[][] children, IgnoreRule[] terminal) {
+            this.reversed = reversed;
+            this.labels = labels;
+            this.children = children;
+            this.terminal = terminal;
+        }
+
+        // Shortest matching prefix (or suffix) wins
+        IgnoreRule find(String name) {
+            if (terminal.length == 1) return null; // only the root
+            int node = 0;
+            int len = name.length();
+            for (int i = 0; i < len; i++) {
+                if (terminal[node] != null) return terminal[node];
+                char c = fold(name.charAt(reversed ? len - 1 - i : i));
+                char[] l = labels[node];
+                int next = -1;
+                for (int k = 0; k < l.length; k++) {
+                    if (l[k] == c) {
+                        next = children[node][k];
+                        break;
+                    }
+                }
+                if (next < 0) return null;
+                node = next;
+            }
+            return terminal[node];
+        }
+
+        static final class Builder {
+            private final boolean reversed;
+            private final List<StringBuilder> labels = new ArrayList<>();
+            private final List<List<Integer>> children = new ArrayList<>();
+            private final List<IgnoreRule> terminal = new ArrayList<>();
+
+            Builder(boolean reversed) {
+                this.reversed = reversed;
+                newNode();
+            }
+
+            private int newNode() {
+                labels.add(new StringBuilder());
+                children.add(new ArrayList<>());
+                terminal.add(null);
+                return terminal.size() - 1;
+            }
+
+            void add(IgnoreRule rule) {
+                String key = rule.literal();
+                int len = key.length();
+                int node = 0;
+                for (int i = 0; i < len; i++) {
+                    char c = fold(key.charAt(reversed ? len - 1 - i : i));
+                    int k = labels.get(node).indexOf(String.valueOf(c));
+                    if (k < 0) {
+                        int child = newNode();
+                        labels.get(node).append(c);
+                        children.get(node).add(child);
+                        node = child;
+                    } else {
+                        node = children.get(node).get(k);
+                    }
+                }
+                if (terminal.get(node) == null) terminal.set(node, rule);
+            }
+
+            Trie build() {
+                int n = terminal.size();
+                char[][] l = new char[n][];
+                int[][] c = new int[n][];
+                for (int i = 0; i < n; i++) {
+                    l[i] = labels.get(i).toString().toCharArray();
+                    c[i] = children.get(i).stream().mapToInt(Integer::intValue).toArray();
+                }
+                return new Trie(reversed, l, c, terminal.toArray(new IgnoreRule[0]));
+            }
+        }
+    }
+}
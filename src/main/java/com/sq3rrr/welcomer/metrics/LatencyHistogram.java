@@ -0,0 +1,55 @@
+package com.sq3rrr.welcomer.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Fixed-memory histogram with power-of-two buckets: bucket i counts values in [2^i, 2^(i+1)).
+ *
+ * 64 counters cover every long, so it never grows or resizes. Percentiles are reported as
+ * the upper bound of their bucket, which is within 2x and plenty to spot regressions.
+ * Recording is lock-free; reads may be off by samples recorded concurrently.
+ */
+public final class LatencyHistogram {
+
+    private static final int BUCKETS = 64;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+
+    public void record(long value) {
+        long v = Math.max(1L, value);
+        counts.incrementAndGet(63 - Long.numberOfLeadingZeros(v));
+        max.accumulate(v);
+    }
+
+    public long count() {
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) n += counts.get(i);
+        return n;
+    }
+
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * Upper bound of the bucket holding the given percentile (0..1), or 0 without samples.
+     */
+    public long percentile(double p) {
+        long total = count();
+        if (total == 0) return 0;
+        long target = Math.max(1L, (long) Math.ceil(total * p));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= target) return Math.min(max(), i == 63 ? Long.MAX_VALUE : (2L << i) - 1);
+        }
+        return max();
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) counts.set(i, 0);
+        max.reset();
+    }
+}
@@ -0,0 +1,142 @@
+package com.sq3rrr.welcomer.metrics;
+
+import com.sq3rrr.welcomer.greet.ChatOutbox;
+import com.sq3rrr.welcomer.greet.Greeter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Opt-in counters for the greeting pipeline: one striped counter per Greeter.Decision and
+ * a latency histogram from chat line receipt to the greeting being sent (per player,
+ * so a merged "Welcome A, B and C!" records three samples).
+ *
+ * Off by default. Callers check {@link #isEnabled()} before recording, so with metrics off
+ * the chat path pays one branch and nothing is counted. Counters can be read from any thread.
+ */
+public final class Metrics implements ChatOutbox.SendListener {
+
+    private static final Greeter.Decision[] DECISIONS = Greeter.Decision.values();
+
+    private volatile boolean enabled = false;
+
+    private final LongAdder[] decisions = new LongAdder[DECISIONS.length];
+    private final LongAdder lines = new LongAdder();
+    private final LatencyHistogram sendLatencyMs = new LatencyHistogram();
+    private volatile long since = System.currentTimeMillis();
+
+    public Metrics() {
+        for (int i = 0; i < decisions.length; i++) decisions[i] = new LongAdder();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    // ----------------------------
+    // RECORDING
+    // ----------------------------
+    public void record(Greeter.Decision decision) {
+        decisions[decision.ordinal()].increment();
+    }
+
+    /**
+     * Called by the outbox for every greeted player in a line it just sent.
+     */
+    @Override
+    public void sent(long queuedAt, long now) {
+        if (!enabled) return;
+        sendLatencyMs.record(now - queuedAt);
+    }
+
+    /**
+     * Called by the outbox once per chat line it sent.
+     */
+    @Override
+    public void line() {
+        if (!enabled) return;
+        lines.increment();
+    }
+
+    public void reset() {
+        for (LongAdder a : decisions) a.reset();
+        lines.reset();
+        sendLatencyMs.reset();
+        since = System.currentTimeMillis();
+    }
+
+    // ----------------------------
+    // READING
+    // ----------------------------
+    public long count(Greeter.Decision decision) {
+        return decisions[decision.ordinal()].sum();
+    }
+
+    public long joinsSeen() {
+        long n = 0;
+        for (Greeter.Decision d : DECISIONS) {
+            if (d != Greeter.Decision.NOT_JOIN) n += count(d);
+        }
+        return n;
+    }
+
+    public LatencyHistogram sendLatencyMs() {
+        return sendLatencyMs;
+    }
+
+    /**
+     * Human readable summary, one entry per chat line.
+     */
+    public List<String> summary(long now) {
+        List<String> out = new ArrayList<>(3);
+        out.add("Joins seen: " + joinsSeen()
+                + " | Greeted: " + count(Greeter.Decision.QUEUED)
+                + " | Chat lines sent: " + lines.sum()
+                + " | Chat lines read: " + (joinsSeen() + count(Greeter.Decision.NOT_JOIN))
+                + " | Over: " + formatDuration(now - since));
+        out.add("Suppressed: ignored " + count(Greeter.Decision.IGNORED)
+                + ", reconnect " + count(Greeter.Decision.RECONNECT)
+                + ", global cooldown " + count(Greeter.Decision.GLOBAL_COOLDOWN)
+                + ", player cooldown " + count(Greeter.Decision.PLAYER_COOLDOWN)
+                + ", other client " + count(Greeter.Decision.CLAIMED)
+                + ", disabled " + count(Greeter.Decision.DISABLED)
+                + ", self " + count(Greeter.Decision.SELF));
+        out.add("Join -> chat latency: p50 <= " + sendLatencyMs.percentile(0.50) + "ms"
+                + " | p90 <= " + sendLatencyMs.percentile(0.90) + "ms"
+                + " | p99 <= " + sendLatencyMs.percentile(0.99) + "ms"
+                + " | max " + sendLatencyMs.max() + "ms"
+                + " (" + sendLatencyMs.count() + " samples)");
+        return out;
+    }
+
+    /**
+     * Appends a timestamped summary to the file, rolling it over to file.1 once it gets
+     * bigger than maxBytes. Meant to run on a background thread.
+     */
+    public void dump(Path file, long maxBytes, long now) throws IOException {
+        if (Files.exists(file) && Files.size(file) > maxBytes) {
+            Files.move(file, file.resolveSibling(file.getFileName() + ".1"), StandardCopyOption.REPLACE_EXISTING);
+        }
+        List<String> lines = new ArrayList<>();
+        String stamp = Instant.ofEpochMilli(now).toString();
+        for (String l : summary(now)) lines.add(stamp + " " + l);
+        Files.write(file, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private static String formatDuration(long ms) {
+        long s = Math.max(0, ms) / 1000;
+        return String.format("%dh %02dm", s / 3600, (s / 60) % 60);
+    }
+}
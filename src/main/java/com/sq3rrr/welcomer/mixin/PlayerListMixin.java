@@ -0,0 +1,28 @@
+package com.sq3rrr.welcomer.mixin;
+
+import com.sq3rrr.welcomer.WelcomerMod;
+import net.minecraft.client.network.ClientPlayNetworkHandler;
+import net.minecraft.network.packet.s2c.play.PlayerListS2CPacket;
+import net.minecraft.network.packet.s2c.play.PlayerRemoveS2CPacket;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+/**
+ * Feeds player list add/remove packets to the join tracker.
+ * At TAIL the handler has already bounced itself onto the client thread and applied the packet.
+ */
+@Mixin(ClientPlayNetworkHandler.class)
+public class PlayerListMixin {
+
+	@Inject(at = @At("TAIL"), method = "onPlayerList")
+	private void welcomer$onPlayerList(PlayerListS2CPacket packet, CallbackInfo info) {
+		WelcomerMod.onPlayersAdded(packet.getPlayerAdditionEntries());
+	}
+
+	@Inject(at = @At("TAIL"), method = "onPlayerRemove")
+	private void welcomer$onPlayerRemove(PlayerRemoveS2CPacket packet, CallbackInfo info) {
+		WelcomerMod.onPlayersRemoved(packet.profileIds());
+	}
+}
@@ -0,0 +1,24 @@
+package com.sq3rrr.welcomer.presence;
+
+/**
+ * Where joins come from.
+ * - CHAT: "X joined the game" lines matched against welcomer_joinformats.txt (default).
+ * - PLAYER_LIST: player list add/remove packets; works on servers that hide or reword join messages.
+ */
+public enum DetectionMode {
+    CHAT("chat"),
+    PLAYER_LIST("playerlist");
+
+    public final String key;
+
+    DetectionMode(String key) {
+        this.key = key;
+    }
+
+    public static DetectionMode byKey(String key) {
+        for (DetectionMode m : values()) {
+            if (m.key.equalsIgnoreCase(key)) return m;
+        }
+        return CHAT;
+    }
+}
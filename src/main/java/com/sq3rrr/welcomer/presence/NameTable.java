@@ -0,0 +1,152 @@
+package com.sq3rrr.welcomer.presence;
+
+import java.util.Arrays;
+
+/**
+ * Symbol table from player names to small int ids.
+ *
+ * A name is stored once when it is first interned and from then on everything keyed by
+ * player (cooldowns, ignore results, presence) uses its id and flat per-id arrays instead
+ * of String hashing and equals. Released ids go on a free list and are handed out again,
+ * so ids stay dense and the table only grows with the number of names alive at once.
+ *
+ * Lookups don't allocate. Not thread-safe.
+ */
+public final class NameTable {
+
+    private static final int MIN_CAPACITY = 16;
+
+    // Hash table name -> id, linear probing, load factor <= 0.5; -1 = empty
+    private int[] table = new int[MIN_CAPACITY * 2];
+    private int[] hashes = new int[MIN_CAPACITY];
+
+    // id -> name, null for free ids
+    private String[] names = new String[MIN_CAPACITY];
+    private int[] freeIds = new int[MIN_CAPACITY];
+    private int freeCount = 0;
+    private int nextId = 0;
+    private int size = 0;
+
+    public NameTable() {
+        Arrays.fill(table, -1);
+    }
+
+    /**
+     * The id for this name, assigning a new one if it isn't known.
+     */
+    public int intern(String name) {
+        int h = hash(name);
+        int mask = table.length - 1;
+        int i = h & mask;
+        int id;
+        while ((id = table[i]) >= 0) {
+            if (hashes[id] == h && names[id].equals(name)) return id;
+            i = (i + 1) & mask;
+        }
+
+        id = freeCount > 0 ? freeIds[--freeCount] : nextId++;
+        if (id >= names.length) growIds(names.length * 2);
+        names[id] = name;
+        hashes[id] = h;
+        size++;
+        if (size * 2 > table.length) {
+            rehash(table.length * 2);
+        } else {
+            table[i] = id;
+        }
+        return id;
+    }
+
+    /**
+     * The id for this name, or -1.
+     */
+    public int find(String name) {
+        int h = hash(name);
+        int mask = table.length - 1;
+        int i = h & mask;
+        int id;
+        while ((id = table[i]) >= 0) {
+            if (hashes[id] == h && names[id].equals(name)) return id;
+            i = (i + 1) & mask;
+        }
+        return -1;
+    }
+
+    public String name(int id) {
+        return names[id];
+    }
+
+    /**
+     * Forgets the name; its id may be handed to another name afterwards.
+     */
+    public void release(int id) {
+        String name = names[id];
+        if (name == null) return;
+
+        int mask = table.length - 1;
+        int i = hashes[id] & mask;
+        while (table[i] != id) i = (i + 1) & mask;
+        removeAt(i);
+
+        names[id] = null;
+        if (freeCount == freeIds.length) freeIds = Arrays.copyOf(freeIds, freeIds.length * 2);
+        freeIds[freeCount++] = id;
+        size--;
+    }
+
+    public boolean isLive(int id) {
+        return id >= 0 && id < names.length && names[id] != null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Every id handed out so far is below this; per-id arrays need at least this length.
+     */
+    public int idLimit() {
+        return nextId;
+    }
+
+    // Backward-shift deletion keeps probe chains intact without tombstones
+    private void removeAt(int slot) {
+        int mask = table.length - 1;
+        int hole = slot;
+        int i = slot;
+        while (true) {
+            i = (i + 1) & mask;
+            int id = table[i];
+            if (id < 0) break;
+            int home = hashes[id] & mask;
+            boolean movable = hole <= i ? (home <= hole || home > i) : (home <= hole && home > i);
+            if (movable) {
+                table[hole] = id;
+                hole = i;
+            }
+        }
+        table[hole] = -1;
+    }
+
+    private void rehash(int capacity) {
+        table = new int[capacity];
+        Arrays.fill(table, -1);
+        int mask = capacity - 1;
+        for (int id = 0; id < nextId; id++) {
+            if (names[id] == null) continue;
+            int i = hashes[id] & mask;
+            while (table[i] >= 0) i = (i + 1) & mask;
+            table[i] = id;
+        }
+    }
+
+    private void growIds(int capacity) {
+        names = Arrays.copyOf(names, capacity);
+        hashes = Arrays.copyOf(hashes, capacity);
+    }
+
+    private static int hash(String name) {
+        int h = name.hashCode();
+        return h ^ (h >>> 16);
+    }
+}
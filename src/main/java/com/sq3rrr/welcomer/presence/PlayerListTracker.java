@@ -0,0 +1,73 @@
+package com.sq3rrr.welcomer.presence;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Online players as the server's player list packets describe them, keyed by UUID.
+ *
+ * The set is updated in place per packet entry and joins/leaves are reported as they
+ * happen. Right after connecting the server sends everyone who is already online; the
+ * first add packet, and every add packet within {@code settleMs} of connecting, only
+ * fills the set and does not report joins, so logging in doesn't greet the whole server.
+ *
+ * Not thread-safe, fed from the client thread (the packet handlers run there).
+ */
+public final class PlayerListTracker {
+
+    public interface Listener {
+        void joined(String name, long now);
+
+        void left(String name, long now);
+    }
+
+    private final long settleMs;
+    private final Listener listener;
+    private final Map<UUID, String> online = new HashMap<>();
+    private long settleUntil = Long.MIN_VALUE;
+    private boolean initialListSeen = false;
+
+    public PlayerListTracker(long settleMs, Listener listener) {
+        this.settleMs = settleMs;
+        this.listener = listener;
+    }
+
+    /**
+     * Call on (re)connect: forgets everyone and starts a new settle window.
+     */
+    public void reset(long now) {
+        online.clear();
+        settleUntil = now + settleMs;
+        initialListSeen = false;
+    }
+
+    /**
+     * Call once per add packet, before its entries. Returns true if the packet is part
+     * of the login burst and its players should be added quietly.
+     */
+    public boolean beginAdds(long now) {
+        boolean quiet = !initialListSeen || now < settleUntil;
+        initialListSeen = true;
+        return quiet;
+    }
+
+    public void added(UUID id, String name, long now, boolean quiet) {
+        if (id == null || name == null || name.isEmpty()) return;
+        String previous = online.put(id, name);
+        if (previous == null && !quiet) listener.joined(name, now);
+    }
+
+    public void removed(UUID id, long now) {
+        String name = online.remove(id);
+        if (name != null) listener.left(name, now);
+    }
+
+    public boolean isOnline(UUID id) {
+        return online.containsKey(id);
+    }
+
+    public int online() {
+        return online.size();
+    }
+}
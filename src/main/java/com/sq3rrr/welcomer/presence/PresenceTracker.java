@@ -0,0 +1,188 @@
+package com.sq3rrr.welcomer.presence;
+
+import com.sq3rrr.welcomer.ignore.IgnoreRules;
+
+import java.util.Arrays;
+
+/**
+ * Who joined and left recently, by NameTable id, from whichever source reports it
+ * (join/leave chat lines, structured messages or the player list).
+ *
+ * - A player who joins again less than {@code reconnectGraceMs} after leaving is just
+ *   reconnecting (timeouts, server hops) and isReconnect() says so.
+ * - Whether a player was new to the server when they joined is kept until their greeting
+ *   is rendered (isNewcomer()).
+ * - Ignore results are cached per id until the rules change, so a regular doesn't run the
+ *   ignore matchers on every join.
+ * - Names not seen for {@code retentionMs} are released, so memory follows the players
+ *   active recently rather than every name ever parsed. Retention must be at least the
+ *   longest per-player cooldown: an id is only reused once no cooldown can refer to it.
+ *
+ * Not thread-safe, used from the Greeter's thread.
+ */
+public final class PresenceTracker {
+
+    private static final long NEVER = Long.MIN_VALUE;
+    private static final byte IGNORE_UNKNOWN = 0;
+    private static final byte IGNORED = 1;
+    private static final byte NOT_IGNORED = 2;
+
+    private final long reconnectGraceMs;
+    private final long retentionMs;
+    private final long sweepIntervalMs;
+
+    private NameTable names = new NameTable();
+    private long[] leftAt = new long[0];
+    private long[] lastSeen = new long[0];
+    private boolean[] online = new boolean[0];
+    private boolean[] newcomer = new boolean[0];
+    private byte[] ignoreState = new byte[0];
+    private IgnoreRules ignoreCachedFor = null;
+    private int onlineCount = 0;
+    private long nextSweep = NEVER;
+
+    public PresenceTracker(long reconnectGraceMs, long retentionMs) {
+        this.reconnectGraceMs = reconnectGraceMs;
+        this.retentionMs = Math.max(retentionMs, reconnectGraceMs);
+        this.sweepIntervalMs = Math.max(1_000L, this.retentionMs / 4);
+    }
+
+    /**
+     * Records a join and returns the player's id.
+     */
+    public int joined(String name, long now) {
+        sweep(now);
+        int id = id(name, now);
+        if (!online[id]) {
+            online[id] = true;
+            onlineCount++;
+        }
+        return id;
+    }
+
+    public void left(String name, long now) {
+        int id = id(name, now);
+        leftAt[id] = now;
+        if (online[id]) {
+            online[id] = false;
+            onlineCount--;
+        }
+    }
+
+    /**
+     * The id for a name, without counting it as a join (commands, history).
+     */
+    public int id(String name, long now) {
+        int id = names.find(name);
+        if (id < 0) {
+            // New name, possibly in a released slot
+            id = names.intern(name);
+            if (id >= lastSeen.length) grow(Math.max(16, names.idLimit() * 2));
+            leftAt[id] = NEVER;
+            lastSeen[id] = now;
+            online[id] = false;
+            newcomer[id] = false;
+            ignoreState[id] = IGNORE_UNKNOWN;
+            return id;
+        }
+        lastSeen[id] = Math.max(lastSeen[id], now);
+        return id;
+    }
+
+    /**
+     * The id for a name, or -1 if it isn't tracked. Changes nothing.
+     */
+    public int find(String name) {
+        return names.find(name);
+    }
+
+    public String name(int id) {
+        return names.name(id);
+    }
+
+    /**
+     * True if the player left less than the grace period ago.
+     */
+    public boolean isReconnect(int id, long now) {
+        return leftAt[id] != NEVER && now - leftAt[id] < reconnectGraceMs;
+    }
+
+    public void setNewcomer(int id, boolean isNew) {
+        newcomer[id] = isNew;
+    }
+
+    /**
+     * True if the player hadn't been seen on this server before their latest join.
+     */
+    public boolean isNewcomer(int id) {
+        return newcomer[id];
+    }
+
+    public boolean isIgnored(int id, IgnoreRules rules) {
+        if (rules != ignoreCachedFor) {
+            Arrays.fill(ignoreState, IGNORE_UNKNOWN);
+            ignoreCachedFor = rules;
+        }
+        byte state = ignoreState[id];
+        if (state == IGNORE_UNKNOWN) {
+            state = rules.matches(names.name(id)) ? IGNORED : NOT_IGNORED;
+            ignoreState[id] = state;
+        }
+        return state == IGNORED;
+    }
+
+    public boolean isOnline(int id) {
+        return online[id];
+    }
+
+    public int online() {
+        return onlineCount;
+    }
+
+    /**
+     * Names currently held.
+     */
+    public int size() {
+        return names.size();
+    }
+
+    /**
+     * Forgets everyone (server switch).
+     */
+    public void clear() {
+        names = new NameTable();
+        leftAt = new long[0];
+        lastSeen = new long[0];
+        online = new boolean[0];
+        newcomer = new boolean[0];
+        ignoreState = new byte[0];
+        onlineCount = 0;
+        nextSweep = NEVER;
+    }
+
+    // Releases names not seen within the retention window; runs every sweepIntervalMs at most
+    private void sweep(long now) {
+        if (nextSweep == NEVER) nextSweep = now + sweepIntervalMs;
+        if (now < nextSweep) return;
+        nextSweep = now + sweepIntervalMs;
+
+        int limit = names.idLimit();
+        for (int id = 0; id < limit; id++) {
+            if (!names.isLive(id) || now - lastSeen[id] <= retentionMs) continue;
+            if (online[id]) {
+                // Missed the leave; stop counting them after this long
+                online[id] = false;
+                onlineCount--;
+            }
+            names.release(id);
+        }
+    }
+
+    private void grow(int capacity) {
+        leftAt = Arrays.copyOf(leftAt, capacity);
+        lastSeen = Arrays.copyOf(lastSeen, capacity);
+        online = Arrays.copyOf(online, capacity);
+        newcomer = Arrays.copyOf(newcomer, capacity);
+        ignoreState = Arrays.copyOf(ignoreState, capacity);
+    }
+}
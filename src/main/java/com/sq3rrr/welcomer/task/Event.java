@@ -0,0 +1,35 @@
+package com.sq3rrr.welcomer.task;
+
+import com.sq3rrr.welcomer.presence.DetectionMode;
+
+/**
+ * Everything that changes greeter state, as posted to the EventLoop.
+ */
+public sealed interface Event {
+
+    // A GAME chat line, checked for joins (CHAT detection) and server feedback
+    record ChatLine(String line, long at) implements Event {
+    }
+
+    // A vanilla GAME message that is neither a join nor a leave, only checked for server feedback
+    record ServerLine(String line, long at) implements Event {
+    }
+
+    // A join read from a structured chat message (CHAT) or seen in the player list packets (PLAYER_LIST)
+    record PlayerJoined(String name, long at, DetectionMode source) implements Event {
+    }
+
+    // A leave, from the same sources; a quick rejoin afterwards is a reconnect
+    record PlayerLeft(String name, long at, DetectionMode source) implements Event {
+    }
+
+    record Connected(String selfName, long at) implements Event {
+    }
+
+    record Disconnected(long at) implements Event {
+    }
+
+    // Work from another thread that needs greeter state: timers, finished background loads, commands
+    record Task(String name, Runnable action) implements Event {
+    }
+}
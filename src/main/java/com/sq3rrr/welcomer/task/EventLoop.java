@@ -0,0 +1,62 @@
+package com.sq3rrr.welcomer.task;
+
+import com.sq3rrr.welcomer.WelcomerMod;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Single-writer loop for greeter state.
+ *
+ * Any thread may post() an Event; posting is one CAS into a bounded MpscRing and never
+ * blocks, so the chat listener and background threads can't be held up by the greeter.
+ * One thread (the client thread, once per tick) drains the ring and is the only one that
+ * touches greeter state, so that state needs no locks or volatile fields.
+ *
+ * If the ring is ever full the event is dropped and counted rather than waiting.
+ */
+public final class EventLoop {
+
+    private final MpscRing<Event> ring;
+    private final LongAdder dropped = new LongAdder();
+
+    public EventLoop(int capacity) {
+        this.ring = new MpscRing<>(capacity);
+    }
+
+    /**
+     * Queues an event from any thread. Returns false if it had to be dropped.
+     */
+    public boolean post(Event event) {
+        if (ring.offer(event)) return true;
+        dropped.increment();
+        return false;
+    }
+
+    /**
+     * Handles the events queued so far, in order. Consumer thread only. Events posted
+     * while draining wait for the next call, so one drain is bounded by the capacity.
+     */
+    public int drain(Consumer<Event> handler) {
+        int n = 0;
+        int limit = ring.size();
+        Event e;
+        while (n < limit && (e = ring.poll()) != null) {
+            n++;
+            try {
+                handler.accept(e);
+            } catch (RuntimeException ex) {
+                WelcomerMod.LOGGER.error("[Welcomer] Failed to handle {}", e, ex);
+            }
+        }
+        return n;
+    }
+
+    public int pending() {
+        return ring.size();
+    }
+
+    public long dropped() {
+        return dropped.sum();
+    }
+}
@@ -0,0 +1,84 @@
+package com.sq3rrr.welcomer.task;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free queue for many producers and one consumer.
+ *
+ * Each slot carries a sequence number (Vyukov's bounded queue): a producer claims the
+ * next position with one CAS on the tail, stores the element and then publishes it by
+ * bumping the slot's sequence; the consumer takes a slot once its sequence says it is
+ * filled and hands it back for the next lap. offer() never blocks or allocates and
+ * fails instead of waiting when the ring is full.
+ *
+ * offer() is safe from any thread; poll() must only be called by the one consumer.
+ */
+public final class MpscRing<E> {
+
+    private final int mask;
+    private final AtomicReferenceArray<E> slots;
+    private final AtomicLongArray sequence;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head = 0;
+
+    /**
+     * @param capacity rounded up to a power of two
+     */
+    public MpscRing(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.mask = size - 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.sequence = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) sequence.set(i, i);
+    }
+
+    /**
+     * Adds an element, or returns false if the ring is full.
+     */
+    public boolean offer(E e) {
+        if (e == null) throw new NullPointerException();
+        long t;
+        int i;
+        while (true) {
+            t = tail.get();
+            i = (int) t & mask;
+            long diff = sequence.getAcquire(i) - t;
+            if (diff == 0) {
+                if (tail.compareAndSet(t, t + 1)) break;
+            } else if (diff < 0) {
+                return false; // the consumer hasn't freed this slot yet: full
+            }
+            // else another producer claimed t first, retry with the new tail
+        }
+        slots.setPlain(i, e);
+        sequence.setRelease(i, t + 1);
+        return true;
+    }
+
+    /**
+     * Takes the oldest element, or null if none is published yet. Consumer thread only.
+     */
+    public E poll() {
+        long h = head;
+        int i = (int) h & mask;
+        if (sequence.getAcquire(i) != h + 1) return null;
+        E e = slots.getPlain(i);
+        slots.setPlain(i, null);
+        sequence.setRelease(i, h + mask + 1);
+        head = h + 1;
+        return e;
+    }
+
+    /**
+     * Approximate number of queued elements.
+     */
+    public int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+}
@@ -0,0 +1,131 @@
+package com.sq3rrr.welcomer.task;
+
+import com.sq3rrr.welcomer.WelcomerMod;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The mod's background thread, with delayed tasks tied to the current server connection.
+ *
+ * - {@link #schedule} tasks belong to the session they were scheduled in. Starting or ending
+ *   a session cancels them and removes them from the queue, so a kick loop can't pile up
+ *   self-greets that later fire on another server.
+ * - Each task has a key; scheduling a key that is still pending is a no-op.
+ * - A task that was already running when the session ended can check {@link #isCurrent}
+ *   before doing anything visible (e.g. from a client.execute callback).
+ * - {@link #execute} and {@link #scheduleAtFixedRate} are not session-scoped, for config
+ *   loading, file handles and the like.
+ *
+ * Thread-safe.
+ */
+public final class SessionScheduler implements AutoCloseable {
+
+    private final ScheduledThreadPoolExecutor executor;
+    private final AtomicLong session = new AtomicLong();
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+
+    public SessionScheduler(String threadName) {
+        executor = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, threadName);
+            t.setDaemon(true);
+            return t;
+        });
+        // Cancelled tasks leave the queue right away instead of waiting out their delay
+        executor.setRemoveOnCancelPolicy(true);
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    /**
+     * Starts a new session (on connect): cancels everything left from the previous one.
+     * Returns the new session id.
+     */
+    public long beginSession() {
+        long id = session.incrementAndGet();
+        cancelPending();
+        return id;
+    }
+
+    /**
+     * Ends the current session (on disconnect): cancels its pending tasks.
+     */
+    public void endSession() {
+        session.incrementAndGet();
+        cancelPending();
+    }
+
+    public long session() {
+        return session.get();
+    }
+
+    public boolean isCurrent(long sessionId) {
+        return session.get() == sessionId;
+    }
+
+    /**
+     * Runs {@code task} after the delay unless the session ends first. Returns false if a
+     * task with the same key is already pending.
+     */
+    public boolean schedule(String key, Runnable task, long delay, TimeUnit unit) {
+        long id = session.get();
+        Pending p = new Pending();
+        if (pending.putIfAbsent(key, p) != null) return false;
+
+        p.future = executor.schedule(() -> {
+            if (!pending.remove(key, p) || !isCurrent(id)) return;
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                WelcomerMod.LOGGER.error("[Welcomer] Scheduled task {} failed", key, e);
+            }
+        }, delay, unit);
+
+        // The session may have ended between the putIfAbsent and here
+        if (!isCurrent(id)) {
+            pending.remove(key, p);
+            p.future.cancel(false);
+        }
+        return true;
+    }
+
+    /**
+     * Runs {@code task} on the scheduler thread as soon as possible, regardless of session.
+     */
+    public void execute(Runnable task) {
+        executor.execute(task);
+    }
+
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable task, long initialDelay, long period, TimeUnit unit) {
+        return executor.scheduleAtFixedRate(task, initialDelay, period, unit);
+    }
+
+    /**
+     * Session tasks waiting to run.
+     */
+    public int pending() {
+        return pending.size();
+    }
+
+    /**
+     * Stops the thread. Tasks already handed to execute() still run; delayed ones are dropped.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    private void cancelPending() {
+        for (Map.Entry<String, Pending> e : pending.entrySet()) {
+            Pending p = e.getValue();
+            if (pending.remove(e.getKey(), p) && p.future != null) p.future.cancel(false);
+        }
+    }
+
+    private static final class Pending {
+        volatile ScheduledFuture<?> future;
+    }
+}
@@ -0,0 +1,105 @@
+package com.sq3rrr.welcomer.replay;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Streams timestamped chat lines from a recorded log without loading it into memory.
+ *
+ * Accepted line formats:
+ * - Minecraft latest.log:  [18:04:31] [Render thread/INFO]: [CHAT] Steve joined the game
+ *   (time of day only; a jump backwards of more than 12h is treated as the next day)
+ * - epoch seconds/millis:  1718035471123 Steve joined the game
+ * - ISO local date-time:   2024-06-10T18:04:31.123 Steve joined the game
+ *
+ * Anything else (stack traces, non-chat log lines) is skipped and counted.
+ */
+final class ChatLogReader implements Closeable {
+
+    private static final Pattern MC_LOG = Pattern.compile(
+            "^\\[(\\d{2}):(\\d{2}):(\\d{2})(?:\\.(\\d{3}))?] \\[[^]]*]: (?:\\[System] )?\\[CHAT] (.*)$");
+    private static final Pattern EPOCH = Pattern.compile("^(\\d{10}|\\d{13})\\s(.*)$");
+    private static final Pattern ISO = Pattern.compile("^(\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}(?:\\.\\d{1,9})?)\\s(.*)$");
+
+    private static final long DAY_MS = 24 * 60 * 60 * 1000L;
+
+    private final BufferedReader reader;
+    private long dayOffset = 0;
+    private long lastTimeOfDay = -1;
+    private long skipped = 0;
+
+    // Current entry (reused, no allocation per line beyond the text itself)
+    private long time;
+    private String text;
+
+    ChatLogReader(Path file) throws IOException {
+        this.reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Advances to the next chat entry. Returns false at end of file.
+     */
+    boolean next() throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (parse(line)) return true;
+            skipped++;
+        }
+        return false;
+    }
+
+    long time() {
+        return time;
+    }
+
+    String text() {
+        return text;
+    }
+
+    long skipped() {
+        return skipped;
+    }
+
+    private boolean parse(String line) {
+        Matcher m = MC_LOG.matcher(line);
+        if (m.matches()) {
+            long tod = ((Long.parseLong(m.group(1)) * 60 + Long.parseLong(m.group(2))) * 60 + Long.parseLong(m.group(3))) * 1000L;
+            if (m.group(4) != null) tod += Long.parseLong(m.group(4));
+            if (lastTimeOfDay >= 0 && tod < lastTimeOfDay - DAY_MS / 2) dayOffset += DAY_MS;
+            lastTimeOfDay = tod;
+            time = dayOffset + tod;
+            text = m.group(5);
+            return true;
+        }
+
+        m = EPOCH.matcher(line);
+        if (m.matches()) {
+            long t = Long.parseLong(m.group(1));
+            time = m.group(1).length() == 10 ? t * 1000L : t;
+            text = m.group(2);
+            return true;
+        }
+
+        m = ISO.matcher(line);
+        if (m.matches()) {
+            LocalDateTime dt = LocalDateTime.parse(m.group(1));
+            time = dt.toInstant(ZoneOffset.UTC).toEpochMilli();
+            text = m.group(2);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
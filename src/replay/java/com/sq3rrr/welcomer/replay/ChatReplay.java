@@ -0,0 +1,243 @@
+package com.sq3rrr.welcomer.replay;
+
+import com.sq3rrr.welcomer.config.ConfigSnapshot;
+import com.sq3rrr.welcomer.detect.JoinDetector;
+import com.sq3rrr.welcomer.detect.JoinFormat;
+import com.sq3rrr.welcomer.greet.Greeter;
+import com.sq3rrr.welcomer.greet.GreetingTemplate;
+import com.sq3rrr.welcomer.greet.Mode;
+import com.sq3rrr.welcomer.ignore.IgnoreRules;
+import com.sq3rrr.welcomer.metrics.LatencyHistogram;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Headless replay of a recorded chat log through the same Greeter pipeline WelcomerMod uses
+ * (join detection -> cooldowns -> message selection -> outbox), on a virtual clock.
+ *
+ * The client and network handler are replaced by a sink that just counts what would have
+ * been sent. Time jumps straight from one log line to the next (the outbox is ticked every
+ * 50ms only while it has something queued), so a day of chat replays in seconds.
+ *
+ * Usage: ./gradlew replay --args="<chat.log> [--mode DEFAULT|CONSTANTIAM|HYPERSAFE|all]
+ *                                  [--formats file] [--messages file] [--ignore file] [--self name]"
+ */
+public final class ChatReplay {
+
+    private static final long TICK_MS = 50L;
+    private static final long DRAIN_AFTER_END_MS = 60_000L;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: ChatReplay <chat.log> [--mode DEFAULT|CONSTANTIAM|HYPERSAFE|all]"
+                    + " [--formats file] [--messages file] [--ignore file] [--self name]");
+            System.exit(2);
+        }
+
+        Path log = Path.of(args[0]);
+        String mode = "all";
+        Path formatsFile = null;
+        Path messagesFile = null;
+        Path ignoreFile = null;
+        String self = null;
+        for (int i = 1; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--mode" -> mode = args[i + 1];
+                case "--formats" -> formatsFile = Path.of(args[i + 1]);
+                case "--messages" -> messagesFile = Path.of(args[i + 1]);
+                case "--ignore" -> ignoreFile = Path.of(args[i + 1]);
+                case "--self" -> self = args[i + 1];
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        List<JoinFormat> formats = new ArrayList<>();
+        for (String l : lines(formatsFile, List.of("{player} joined the game"))) {
+            if (!l.startsWith("#")) formats.add(JoinFormat.parse(l));
+        }
+        List<GreetingTemplate> messages = new ArrayList<>();
+        for (String l : lines(messagesFile, List.of("%s welcome!", "Hey %s, nice to see you!", "Welcome %s!"))) {
+            if (!l.startsWith("#")) messages.add(GreetingTemplate.compile(l));
+        }
+        List<String> ignored = new ArrayList<>();
+        for (String l : lines(ignoreFile, List.of())) {
+            if (!l.startsWith("#")) ignored.add(l);
+        }
+
+        List<Mode> modes = mode.equalsIgnoreCase("all") ? List.of(Mode.values()) : List.of(Mode.valueOf(mode.toUpperCase()));
+        for (Mode m : modes) {
+            ConfigSnapshot config = ConfigSnapshot.of(new JoinDetector(formats))
+                    .withLeaveDetector(new JoinDetector(List.of(JoinFormat.parse("{player} left the game"))))
+                    .withMode(m)
+                    .withMessages(messages)
+                    .withIgnore(IgnoreRules.of(ignored));
+            Greeter greeter = new Greeter(config, 0L);
+            greeter.setEnabled(true);
+            greeter.setSelfName(self);
+            greeter.metrics().setEnabled(true);
+
+            run(log, m.name(), greeter).print();
+        }
+    }
+
+    static Report run(Path log, String label, Greeter greeter) throws IOException {
+        Report report = new Report(label);
+        RecordingChat chat = new RecordingChat();
+
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) pool.resetPeakUsage();
+        long wallStart = System.nanoTime();
+
+        try (ChatLogReader reader = new ChatLogReader(log)) {
+            long nextTick = Long.MIN_VALUE;
+            while (reader.next()) {
+                long now = reader.time();
+                if (report.firstTime == Long.MIN_VALUE) report.firstTime = now;
+                report.lastTime = now;
+
+                // Virtual clock: tick the outbox up to this line, skipping idle stretches
+                if (nextTick == Long.MIN_VALUE) nextTick = now;
+                while (nextTick <= now && greeter.outbox().pending() > 0) {
+                    greeter.tick(nextTick, chat);
+                    nextTick += TICK_MS;
+                }
+                if (nextTick < now) nextTick = now;
+
+                long t0 = System.nanoTime();
+                Greeter.Decision d = greeter.onGameMessage(reader.text(), now);
+                report.latency.record(System.nanoTime() - t0);
+                report.lines++;
+                report.decisions.merge(d, 1L, Long::sum);
+            }
+            report.skippedLines = reader.skipped();
+
+            // Let the outbox finish whatever was still queued at the end of the log
+            long end = nextTick + DRAIN_AFTER_END_MS;
+            for (long t = nextTick; t <= end && greeter.outbox().pending() > 0; t += TICK_MS) {
+                greeter.tick(t, chat);
+            }
+        }
+
+        report.wallNanos = System.nanoTime() - wallStart;
+        report.sent = chat.sent;
+        report.sentChars = chat.chars;
+        report.staleDropped = greeter.outbox().droppedStale();
+        report.sendLatencyMs = greeter.metrics().sendLatencyMs();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) report.peakHeapBytes += pool.getPeakUsage().getUsed();
+        }
+        return report;
+    }
+
+    private static List<String> lines(Path file, List<String> fallback) throws IOException {
+        if (file == null) return fallback;
+        List<String> out = new ArrayList<>();
+        for (String l : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            String t = l.trim();
+            if (!t.isEmpty()) out.add(t);
+        }
+        return out;
+    }
+
+    // ----------------------------
+    // STAND-INS
+    // ----------------------------
+
+    /**
+     * Replaces ClientPlayNetworkHandler.sendChatMessage: counts instead of sending.
+     */
+    static final class RecordingChat implements Consumer<String> {
+        long sent;
+        long chars;
+
+        @Override
+        public void accept(String msg) {
+            sent++;
+            chars += msg.length();
+        }
+    }
+
+    /**
+     * Power-of-two latency buckets; good enough for p50/p99 on millions of samples in 64 longs.
+     */
+    static final class Histogram {
+        private final long[] buckets = new long[64];
+        private long count;
+        private long max;
+
+        void record(long nanos) {
+            buckets[63 - Long.numberOfLeadingZeros(Math.max(1, nanos))]++;
+            count++;
+            max = Math.max(max, nanos);
+        }
+
+        // Upper bound of the bucket holding the given percentile
+        long percentile(double p) {
+            long target = (long) Math.ceil(count * p);
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= target && seen > 0) return (2L << i) - 1;
+            }
+            return max;
+        }
+    }
+
+    static final class Report {
+        final String label;
+        final Map<Greeter.Decision, Long> decisions = new EnumMap<>(Greeter.Decision.class);
+        final Histogram latency = new Histogram();
+        LatencyHistogram sendLatencyMs = new LatencyHistogram();
+        long lines;
+        long skippedLines;
+        long sent;
+        long sentChars;
+        long staleDropped;
+        long firstTime = Long.MIN_VALUE;
+        long lastTime;
+        long wallNanos;
+        long peakHeapBytes;
+
+        Report(String label) {
+            this.label = label;
+        }
+
+        void print() {
+            long span = Math.max(0, lastTime - firstTime);
+            double wallMs = wallNanos / 1e6;
+            long joins = lines - decisions.getOrDefault(Greeter.Decision.NOT_JOIN, 0L);
+
+            System.out.println("=== " + label + " ===");
+            System.out.printf("lines %d (skipped %d) | joins %d | log span %s | wall %.0f ms (%.0fx real time)%n",
+                    lines, skippedLines, joins, duration(span), wallMs, wallMs > 0 ? span / wallMs : 0.0);
+            System.out.printf("greeted (queued) %d | chat messages sent %d (%d chars) | stale dropped %d%n",
+                    decisions.getOrDefault(Greeter.Decision.QUEUED, 0L), sent, sentChars, staleDropped);
+            StringBuilder sb = new StringBuilder("suppressed:");
+            for (Greeter.Decision d : Greeter.Decision.values()) {
+                if (d == Greeter.Decision.NOT_JOIN || d == Greeter.Decision.QUEUED) continue;
+                sb.append(' ').append(d.name()).append('=').append(decisions.getOrDefault(d, 0L));
+            }
+            System.out.println(sb);
+            System.out.printf("decision latency per line: p50 <= %d ns | p99 <= %d ns | max %d ns%n",
+                    latency.percentile(0.50), latency.percentile(0.99), latency.max);
+            System.out.printf("join -> chat (virtual time): p50 <= %d ms | p99 <= %d ms | max %d ms%n",
+                    sendLatencyMs.percentile(0.50), sendLatencyMs.percentile(0.99), sendLatencyMs.max());
+            System.out.printf("peak heap %.1f MB%n%n", peakHeapBytes / (1024.0 * 1024.0));
+        }
+
+        private static String duration(long ms) {
+            long s = ms / 1000;
+            return String.format("%dh %02dm %02ds", s / 3600, (s / 60) % 60, s % 60);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.sq3rrr.welcomer.greet;
+
+import com.sq3rrr.welcomer.config.ConfigSnapshot;
+import com.sq3rrr.welcomer.detect.FeedbackPatterns;
+import com.sq3rrr.welcomer.detect.JoinDetector;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GreeterFeedbackTest {
+
+    private static Greeter greeter() {
+        ConfigSnapshot cfg = ConfigSnapshot.of(new JoinDetector(List.of()))
+                .withMessages(GreetingTemplate.compileAll(List.of("Welcome %s!")))
+                .withFeedback(new FeedbackPatterns(List.of("sending messages too fast")));
+        Greeter g = new Greeter(cfg, 0L);
+        g.setEnabled(true);
+        return g;
+    }
+
+    // PLAYER_LIST detection: joins come from the packets, chat lines only go to the feedback check
+    @Test
+    void feedbackOpensBreakerWithPlayerListDetection() {
+        Greeter g = greeter();
+        List<String> sent = new ArrayList<>();
+
+        assertEquals(Greeter.Decision.QUEUED, g.onPlayerJoined("Alex", 0L));
+        g.tick(2_000L, sent::add);
+        assertEquals(List.of("Welcome Alex!"), sent);
+
+        g.onServerMessage("You are sending messages too fast!", 2_500L);
+        assertEquals(CircuitBreaker.State.OPEN, g.breaker().state());
+
+        // Nothing goes out while the breaker is open
+        assertEquals(Greeter.Decision.QUEUED, g.onPlayerJoined("Steve", 3_000L));
+        g.tick(5_000L, sent::add);
+        assertEquals(1, sent.size());
+    }
+
+    @Test
+    void feedbackWithoutOwnMessageIsIgnored() {
+        Greeter g = greeter();
+        g.onServerMessage("You are sending messages too fast!", 1_000L);
+        assertEquals(CircuitBreaker.State.CLOSED, g.breaker().state());
+    }
+}